@@ -0,0 +1,103 @@
+package ru.practicum.shareit.benchmark;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.shareit.ShareItApp;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.CommentRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemRepository;
+import ru.practicum.shareit.item.service.ItemBookingPointersService;
+import ru.practicum.shareit.item.service.ItemServiceImpl;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Контекст приложения без веб-сервера поверх H2, заполненный {@code items} вещами:
+ * по 10 вещей на владельца, у каждой вещи прошедшее, текущее, будущее и отклонённое бронирование и отзыв.
+ */
+final class BenchmarkDataset implements AutoCloseable {
+
+    static final String SEARCH_TEXT = "дрель";
+
+    private static final String[] NAMES = {"Дрель", "Пила", "Лестница", "Палатка", "Велосипед"};
+    private static final int ITEMS_PER_OWNER = 10;
+
+    final ConfigurableApplicationContext context;
+    final Long ownerId;
+    final Long bookerId;
+    final Long itemId;
+
+    private BenchmarkDataset(ConfigurableApplicationContext context, Long ownerId, Long bookerId, Long itemId) {
+        this.context = context;
+        this.ownerId = ownerId;
+        this.bookerId = bookerId;
+        this.itemId = itemId;
+    }
+
+    static ConfigurableApplicationContext startContext(String... extraArgs) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.main.web-application-type=none",
+                "--spring.main.banner-mode=off",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework.transaction.interceptor=WARN",
+                "--logging.level.org.springframework.orm.jpa.JpaTransactionManager=WARN"));
+        args.addAll(List.of(extraArgs));
+        return new SpringApplicationBuilder(ShareItApp.class).run(args.toArray(String[]::new));
+    }
+
+    static BenchmarkDataset start(int items, String... extraArgs) {
+        ConfigurableApplicationContext context = startContext(extraArgs);
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        ItemRepository itemRepository = context.getBean(ItemRepository.class);
+        BookingRepository bookingRepository = context.getBean(BookingRepository.class);
+        CommentRepository commentRepository = context.getBean(CommentRepository.class);
+
+        int owners = Math.max(1, items / ITEMS_PER_OWNER);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < owners * 2; i++) {
+            users.add(new User(null, "Пользователь " + i, "user" + i + "@bench.ru"));
+        }
+        users = userRepository.saveAll(users);
+        List<User> bookers = users.subList(owners, users.size());
+
+        List<Item> saved = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            saved.add(new Item(null, NAMES[i % NAMES.length] + " " + i, "Описание вещи " + i, true,
+                    users.get(i / ITEMS_PER_OWNER % owners).getId(), null));
+        }
+        saved = itemRepository.saveAll(saved);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Booking> bookings = new ArrayList<>();
+        List<Comment> comments = new ArrayList<>();
+        for (int i = 0; i < saved.size(); i++) {
+            Item item = saved.get(i);
+            User booker = bookers.get(i % bookers.size());
+            bookings.add(new Booking(null, now.minusDays(3), now.minusDays(2), item, booker, BookingStatus.APPROVED));
+            bookings.add(new Booking(null, now.minusHours(1), now.plusDays(1), item, booker, BookingStatus.APPROVED));
+            bookings.add(new Booking(null, now.plusDays(2), now.plusDays(3), item, booker, BookingStatus.WAITING));
+            bookings.add(new Booking(null, now.plusDays(4), now.plusDays(5), item, booker, BookingStatus.REJECTED));
+            comments.add(new Comment(null, "Отзыв " + i, item, booker, now.minusDays(1)));
+        }
+        bookingRepository.saveAll(bookings);
+        commentRepository.saveAll(comments);
+
+        context.getBean(ItemServiceImpl.class).rebuildSearchIndex();
+        context.getBean(ItemBookingPointersService.class).rebuildAll();
+        return new BenchmarkDataset(context, users.get(0).getId(), bookers.get(0).getId(), saved.get(0).getId());
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,90 @@
+package ru.practicum.shareit.benchmark;
+
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Массовая вставка {@code bookings} бронирований через JPA. jdbcBatchSize=1 воспроизводит вставку
+ * по одной строке за обращение к БД, h2Mode=PostgreSQL — H2 в режиме совместимости с PostgreSQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BulkInsertBenchmark {
+
+    private static final int FLUSH_EVERY = 1000;
+
+    @Param({"100000"})
+    private int bookings;
+
+    @Param({"1", "50"})
+    private int jdbcBatchSize;
+
+    @Param({"REGULAR", "PostgreSQL"})
+    private String h2Mode;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate transactionTemplate;
+    private EntityManager entityManager;
+    private Item item;
+    private User booker;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String url = "jdbc:h2:mem:bulk;MODE=" + h2Mode + ";DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH";
+        context = BenchmarkDataset.startContext(
+                "--spring.datasource.url=" + url,
+                "--spring.jpa.properties.hibernate.jdbc.batch_size=" + jdbcBatchSize);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        entityManager = context.getBean(EntityManager.class);
+        User owner = context.getBean(UserRepository.class).save(new User(null, "Владелец", "owner@bulk.ru"));
+        booker = context.getBean(UserRepository.class).save(new User(null, "Арендатор", "booker@bulk.ru"));
+        item = context.getBean(ItemRepository.class).save(new Item(null, "Дрель", "Описание", true,
+                owner.getId(), null));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void insertBookings() {
+        LocalDateTime start = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            Item itemRef = entityManager.getReference(Item.class, item.getId());
+            User bookerRef = entityManager.getReference(User.class, booker.getId());
+            for (int i = 0; i < bookings; i++) {
+                LocalDateTime from = start.plusHours(i);
+                entityManager.persist(new Booking(null, from, from.plusMinutes(30), itemRef, bookerRef,
+                        BookingStatus.APPROVED));
+                if ((i + 1) % FLUSH_EVERY == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                    itemRef = entityManager.getReference(Item.class, item.getId());
+                    bookerRef = entityManager.getReference(User.class, booker.getId());
+                }
+            }
+        });
+    }
+}
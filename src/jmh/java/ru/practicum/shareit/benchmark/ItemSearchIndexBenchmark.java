@@ -0,0 +1,74 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemSearchIndex;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск по триграммному индексу без кэша и без Spring: на миллионе вещей заполнение через БД заняло бы
+ * больше самого замера. Запросы короче трёх символов триграмм не дают и идут по документам подряд,
+ * поэтому редкий короткий запрос просматривает весь индекс.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ItemSearchIndexBenchmark {
+
+    private static final String[] NAMES = {"Дрель", "Пила", "Лестница", "Палатка", "Велосипед"};
+
+    @Param({"1000000"})
+    private int datasetSize;
+
+    private ItemSearchIndex searchIndex;
+    private String rareQuery;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        searchIndex = new ItemSearchIndex();
+        for (int i = 0; i < datasetSize; i++) {
+            searchIndex.index(new Item((long) i + 1, NAMES[i % NAMES.length] + " " + i, "Описание вещи " + i, true,
+                    1L, null));
+        }
+        // Номер из середины: триграммы находят его по коротким спискам
+        rareQuery = "вещи " + datasetSize / 2;
+    }
+
+    // Частое слово: первая страница набирается с начала самого короткого списка
+    @Benchmark
+    public List<Long> frequentFirstPage() {
+        return searchIndex.search("дрель", 0, 20);
+    }
+
+    @Benchmark
+    public List<Long> frequentDeepPage() {
+        return searchIndex.search("дрель", 10_000, 20);
+    }
+
+    @Benchmark
+    public List<Long> rare() {
+        return searchIndex.search(rareQuery, 0, 20);
+    }
+
+    // Короткий частый запрос: просмотр останавливается, как только страница заполнена
+    @Benchmark
+    public List<Long> shortFrequent() {
+        return searchIndex.search("пи", 0, 20);
+    }
+
+    // Короткий запрос без совпадений: полный проход по документам
+    @Benchmark
+    public List<Long> shortMissing() {
+        return searchIndex.search("ъё", 0, 20);
+    }
+}
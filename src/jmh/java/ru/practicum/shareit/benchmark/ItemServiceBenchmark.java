@@ -0,0 +1,56 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemWithBookingsDto;
+import ru.practicum.shareit.item.service.ItemService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ItemServiceBenchmark {
+
+    @Param({"1000"})
+    private int datasetSize;
+
+    private BenchmarkDataset dataset;
+    private ItemService itemService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = BenchmarkDataset.start(datasetSize);
+        itemService = dataset.context.getBean(ItemService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataset.close();
+    }
+
+    @Benchmark
+    public List<ItemDto> searchItemsFirstPage() {
+        return itemService.searchItems(BenchmarkDataset.SEARCH_TEXT, 0, 20);
+    }
+
+    @Benchmark
+    public List<ItemDto> searchItemsAll() {
+        return itemService.searchItems(BenchmarkDataset.SEARCH_TEXT, 0, null);
+    }
+
+    @Benchmark
+    public List<ItemWithBookingsDto> getItemsByOwner() {
+        return itemService.getItemsByOwner(dataset.ownerId);
+    }
+}
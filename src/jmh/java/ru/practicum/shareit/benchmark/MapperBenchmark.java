@@ -0,0 +1,76 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.mapper.BookingMapper;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemWithBookingsDto;
+import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Преобразования в DTO на списках размером {@code batchSize}, без БД.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MapperBenchmark {
+
+    @Param({"20", "1000"})
+    private int batchSize;
+
+    private List<Booking> bookings;
+    private List<Item> items;
+    private List<Comment> comments;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        User owner = new User(1L, "Владелец", "owner@bench.ru");
+        User booker = new User(2L, "Арендатор", "booker@bench.ru");
+        bookings = new ArrayList<>();
+        items = new ArrayList<>();
+        comments = new ArrayList<>();
+        for (long i = 0; i < batchSize; i++) {
+            Item item = new Item(i, "Дрель " + i, "Описание вещи " + i, true, owner.getId(), null);
+            items.add(item);
+            bookings.add(new Booking(i, now.plusDays(i), now.plusDays(i + 1), item, booker, BookingStatus.APPROVED));
+            comments.add(new Comment(i, "Отзыв " + i, item, booker, now));
+        }
+    }
+
+    @Benchmark
+    public List<BookingResponseDto> bookingToResponseDto() {
+        return BookingMapper.toResponseDto(bookings);
+    }
+
+    @Benchmark
+    public List<ItemDto> itemToDto() {
+        List<ItemDto> result = new ArrayList<>(items.size());
+        for (Item item : items) {
+            result.add(ItemMapper.toDto(item));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public ItemWithBookingsDto itemWithBookingsDto() {
+        return ItemMapper.toItemWithBookingsDto(items.get(0), comments);
+    }
+}
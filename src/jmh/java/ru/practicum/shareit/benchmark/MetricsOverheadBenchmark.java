@@ -0,0 +1,70 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.item.dto.ItemWithBookingsDto;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость метрик горячего пути: те же вызовы сервисов с {@code shareit.metrics.enabled} true и false.
+ * {@code getUserById} почти целиком обслуживается кэшем и показывает накладные расходы таймера в чистом виде.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MetricsOverheadBenchmark {
+
+    @Param({"1000"})
+    private int datasetSize;
+
+    @Param({"false", "true"})
+    private boolean metricsEnabled;
+
+    private BenchmarkDataset dataset;
+    private UserService userService;
+    private ItemService itemService;
+    private BookingService bookingService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = BenchmarkDataset.start(datasetSize, "--shareit.metrics.enabled=" + metricsEnabled);
+        userService = dataset.context.getBean(UserService.class);
+        itemService = dataset.context.getBean(ItemService.class);
+        bookingService = dataset.context.getBean(BookingService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataset.close();
+    }
+
+    @Benchmark
+    public UserDto getUserById() {
+        return userService.getUserById(dataset.ownerId);
+    }
+
+    @Benchmark
+    public ItemWithBookingsDto getItemById() {
+        return itemService.getItemById(dataset.itemId, dataset.ownerId);
+    }
+
+    @Benchmark
+    public List<BookingResponseDto> getUserBookingsPast() {
+        return bookingService.getUserBookings("PAST", dataset.bookerId, 0, 20, null);
+    }
+}
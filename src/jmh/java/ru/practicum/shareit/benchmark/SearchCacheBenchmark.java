@@ -0,0 +1,134 @@
+package ru.practicum.shareit.benchmark;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemRepository;
+import ru.practicum.shareit.item.service.ItemSearchCache;
+import ru.practicum.shareit.item.service.ItemSearchIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Поиск первой страницы по запросам с распределением Ципфа: через кэш выдачи и напрямую по индексу.
+ * Каждый {@code writeEvery}-й вызов вместо поиска переключает доступность случайной вещи в индексе,
+ * что заставляет кэш перепроверять записи. Доля попаданий за итерацию печатается после неё.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class SearchCacheBenchmark {
+
+    private static final String[] NAMES = {"Дрель", "Пила", "Лестница", "Палатка", "Велосипед"};
+
+    @Param({"1000"})
+    private int datasetSize;
+
+    @Param({"0.8", "1.2"})
+    private double zipfExponent;
+
+    @Param({"0", "1000"})
+    private int writeEvery;
+
+    private BenchmarkDataset dataset;
+    private ItemSearchIndex searchIndex;
+    private ItemSearchCache searchCache;
+    private List<Item> items;
+    private String[] queries;
+    private double[] cumulative;
+    private final AtomicLong calls = new AtomicLong();
+    private CacheStats iterationStart;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataset = BenchmarkDataset.start(datasetSize);
+        searchIndex = dataset.context.getBean(ItemSearchIndex.class);
+        searchCache = dataset.context.getBean(ItemSearchCache.class);
+        items = dataset.context.getBean(ItemRepository.class).findByAvailableTrue();
+
+        // Словарь: номера вещей из описаний, названия в разном регистре и общее слово из всех описаний
+        List<String> vocabulary = new ArrayList<>();
+        for (int i = 0; i < datasetSize; i++) {
+            vocabulary.add("вещи " + i);
+        }
+        for (String name : NAMES) {
+            vocabulary.add(name);
+            vocabulary.add(name.toUpperCase());
+        }
+        vocabulary.add("описание");
+        Collections.shuffle(vocabulary, new Random(42));
+        queries = vocabulary.toArray(String[]::new);
+
+        cumulative = new double[queries.length];
+        double sum = 0;
+        for (int rank = 0; rank < queries.length; rank++) {
+            sum += 1 / Math.pow(rank + 1, zipfExponent);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < queries.length; rank++) {
+            cumulative[rank] /= sum;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        iterationStart = searchCache.stats();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportHitRatio() {
+        CacheStats stats = searchCache.stats().minus(iterationStart);
+        if (stats.requestCount() == 0) {
+            return;
+        }
+        System.out.printf("%nhit ratio %.4f (hits %d, misses %d, evictions %d)%n",
+                stats.hitRate(), stats.hitCount(), stats.missCount(), stats.evictionCount());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataset.close();
+    }
+
+    @Benchmark
+    public List<Long> cached() {
+        String query = nextQuery();
+        return query == null ? List.of() : searchCache.search(query, 0, 20);
+    }
+
+    @Benchmark
+    public List<Long> uncached() {
+        String query = nextQuery();
+        return query == null ? List.of() : searchIndex.search(query, 0, 20);
+    }
+
+    private String nextQuery() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (writeEvery > 0 && calls.incrementAndGet() % writeEvery == 0) {
+            Item item = items.get(random.nextInt(items.size()));
+            searchIndex.index(new Item(item.getId(), item.getName(), item.getDescription(), random.nextBoolean(),
+                    item.getOwnerId(), item.getRequestId()));
+            return null;
+        }
+        int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+        return queries[Math.min(rank < 0 ? -rank - 1 : rank, queries.length - 1)];
+    }
+}
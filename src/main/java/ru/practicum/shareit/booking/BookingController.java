@@ -1,21 +1,41 @@
 package ru.practicum.shareit.booking;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingApprovalDto;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
 import ru.practicum.shareit.booking.dto.BookingCreateDto;
+import ru.practicum.shareit.booking.dto.BookingCursor;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.service.BookingExport;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.common.Tagged;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
 
 @RestController
 @RequestMapping("/bookings")
 @RequiredArgsConstructor
 public class BookingController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final BookingService bookingService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
     public BookingResponseDto createBooking(@RequestBody BookingCreateDto bookingCreateDto,
                                            @RequestHeader("X-Sharer-User-Id") Long bookerId) {
         return bookingService.createBooking(bookingCreateDto, bookerId);
@@ -28,25 +48,101 @@ public class BookingController {
         return bookingService.approveBooking(bookingId, approved, ownerId);
     }
 
+    @PostMapping("/batch")
+    public List<BookingBatchResultDto> createBookings(@RequestBody List<BookingCreateDto> bookingCreateDtos,
+                                                      @RequestHeader("X-Sharer-User-Id") Long bookerId) {
+        return bookingService.createBookings(bookingCreateDtos, bookerId);
+    }
+
+    @PatchMapping("/batch")
+    public List<BookingBatchResultDto> approveBookings(@RequestBody List<BookingApprovalDto> approvals,
+                                                       @RequestHeader("X-Sharer-User-Id") Long ownerId) {
+        return bookingService.approveBookings(approvals, ownerId);
+    }
+
     @GetMapping("/{bookingId}")
     public BookingResponseDto getBookingById(@PathVariable Long bookingId,
-                                            @RequestHeader("X-Sharer-User-Id") Long userId) {
-        return bookingService.getBookingById(bookingId, userId);
+                                            @RequestHeader("X-Sharer-User-Id") Long userId,
+                                            WebRequest request) {
+        Tagged<BookingResponseDto> booking = bookingService.getTaggedBooking(bookingId, userId);
+        if (request.checkNotModified(booking.etag())) {
+            return null;
+        }
+        return booking.body();
     }
 
     @GetMapping
-    public List<BookingResponseDto> getUserBookings(@RequestParam(defaultValue = "ALL") String state,
-                                                    @RequestHeader("X-Sharer-User-Id") Long userId,
-                                                    @RequestParam(defaultValue = "0") Integer from,
-                                                    @RequestParam(defaultValue = "10") Integer size) {
-        return bookingService.getUserBookings(state, userId, from, size);
+    public ResponseEntity<List<BookingResponseDto>> getUserBookings(@RequestParam(defaultValue = "ALL") String state,
+                                                                    @RequestHeader("X-Sharer-User-Id") Long userId,
+                                                                    @RequestParam(defaultValue = "0") Integer from,
+                                                                    @RequestParam(defaultValue = "10") Integer size,
+                                                                    @RequestParam(required = false) String cursor) {
+        return withNextCursor(limit -> bookingService.getUserBookings(state, userId, from, limit, cursor), size);
     }
 
     @GetMapping("/owner")
-    public List<BookingResponseDto> getOwnerBookings(@RequestParam(defaultValue = "ALL") String state,
-                                                     @RequestHeader("X-Sharer-User-Id") Long ownerId,
-                                                     @RequestParam(defaultValue = "0") Integer from,
-                                                     @RequestParam(defaultValue = "10") Integer size) {
-        return bookingService.getOwnerBookings(state, ownerId, from, size);
+    public ResponseEntity<List<BookingResponseDto>> getOwnerBookings(@RequestParam(defaultValue = "ALL") String state,
+                                                                     @RequestHeader("X-Sharer-User-Id") Long ownerId,
+                                                                     @RequestParam(defaultValue = "0") Integer from,
+                                                                     @RequestParam(defaultValue = "10") Integer size,
+                                                                     @RequestParam(required = false) String cursor) {
+        return withNextCursor(limit -> bookingService.getOwnerBookings(state, ownerId, from, limit, cursor), size);
+    }
+
+    // Число бронирований в каждом состоянии из счётчиков, без подсчёта по таблице
+    @GetMapping("/summary")
+    public Map<BookingState, Long> getUserBookingSummary(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        return bookingService.getUserBookingSummary(userId);
+    }
+
+    @GetMapping("/owner/summary")
+    public Map<BookingState, Long> getOwnerBookingSummary(@RequestHeader("X-Sharer-User-Id") Long ownerId) {
+        return bookingService.getOwnerBookingSummary(ownerId);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUserBookings(@RequestParam(defaultValue = "ALL") String state,
+                                                                    @RequestHeader("X-Sharer-User-Id") Long userId) {
+        return ndjson(bookingService.exportUserBookings(state, userId));
+    }
+
+    @GetMapping("/owner/export")
+    public ResponseEntity<StreamingResponseBody> exportOwnerBookings(@RequestParam(defaultValue = "ALL") String state,
+                                                                     @RequestHeader("X-Sharer-User-Id") Long ownerId) {
+        return ndjson(bookingService.exportOwnerBookings(state, ownerId));
+    }
+
+    // По объекту JSON на строку; запись в поток блокирует чтение курсора, пока клиент не заберёт данные
+    private ResponseEntity<StreamingResponseBody> ndjson(BookingExport export) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                export.forEach(booking -> {
+                    try {
+                        objectMapper.writeValue(generator, booking);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // Страница читается с одной лишней записью: если она нашлась, дальше есть ещё бронирования и отдаётся курсор
+    // на продолжение, иначе страница последняя и курсора в ней нет, даже когда она полная.
+    // Некорректный size передаётся как есть — его отклонит сервис
+    private ResponseEntity<List<BookingResponseDto>> withNextCursor(IntFunction<List<BookingResponseDto>> page,
+                                                                    Integer size) {
+        if (size <= 0 || size == Integer.MAX_VALUE) {
+            return ResponseEntity.ok(page.apply(size));
+        }
+        List<BookingResponseDto> bookings = page.apply(size + 1);
+        if (bookings.size() <= size) {
+            return ResponseEntity.ok(bookings);
+        }
+        bookings = bookings.subList(0, size);
+        String next = BookingCursor.after(bookings.get(size - 1)).encode();
+        return ResponseEntity.ok().header(NEXT_CURSOR_HEADER, next).body(bookings);
     }
-}
\ No newline at end of file
+}
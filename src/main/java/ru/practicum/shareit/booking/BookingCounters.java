@@ -0,0 +1,89 @@
+package ru.practicum.shareit.booking;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Число бронирований пользователя в каждом BookingState: отдельно как арендатора и как владельца.
+ * Меняется прибавлением разностей при создании, решении владельца и переносе между группами,
+ * сверяется с таблицей bookings по расписанию.
+ */
+@Entity
+@Table(name = "booking_counters")
+@IdClass(BookingCounters.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingCounters {
+
+    public enum Role {
+        BOOKER,
+        OWNER
+    }
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "role")
+    private Role role;
+
+    @Column(name = "all_count", nullable = false)
+    private long allCount;
+
+    @Column(name = "current_count", nullable = false)
+    private long currentCount;
+
+    @Column(name = "past_count", nullable = false)
+    private long pastCount;
+
+    @Column(name = "future_count", nullable = false)
+    private long futureCount;
+
+    @Column(name = "waiting_count", nullable = false)
+    private long waitingCount;
+
+    @Column(name = "rejected_count", nullable = false)
+    private long rejectedCount;
+
+    public BookingCounters(Long userId, Role role, long[] counts) {
+        this(userId, role, 0, 0, 0, 0, 0, 0);
+        setCounts(counts);
+    }
+
+    /**
+     * Значения в порядке BookingState: ALL, CURRENT, PAST, FUTURE, WAITING, REJECTED.
+     */
+    public long[] getCounts() {
+        return new long[]{allCount, currentCount, pastCount, futureCount, waitingCount, rejectedCount};
+    }
+
+    public void setCounts(long[] counts) {
+        allCount = counts[BookingState.ALL.ordinal()];
+        currentCount = counts[BookingState.CURRENT.ordinal()];
+        pastCount = counts[BookingState.PAST.ordinal()];
+        futureCount = counts[BookingState.FUTURE.ordinal()];
+        waitingCount = counts[BookingState.WAITING.ordinal()];
+        rejectedCount = counts[BookingState.REJECTED.ordinal()];
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private Role role;
+    }
+}
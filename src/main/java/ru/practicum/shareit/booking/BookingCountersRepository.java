@@ -0,0 +1,28 @@
+package ru.practicum.shareit.booking;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface BookingCountersRepository extends JpaRepository<BookingCounters, BookingCounters.Key> {
+
+    // Прибавляет разности одним UPDATE; 0 — строки счётчиков у пользователя ещё нет
+    @Modifying
+    @Query("update BookingCounters c set c.allCount = c.allCount + ?3, c.currentCount = c.currentCount + ?4, " +
+            "c.pastCount = c.pastCount + ?5, c.futureCount = c.futureCount + ?6, " +
+            "c.waitingCount = c.waitingCount + ?7, c.rejectedCount = c.rejectedCount + ?8 " +
+            "where c.userId = ?1 and c.role = ?2")
+    int add(Long userId, BookingCounters.Role role, long all, long current, long past, long future,
+            long waiting, long rejected);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from BookingCounters c where c.userId in ?1")
+    List<BookingCounters> findByUserIdInForUpdate(Collection<Long> userIds);
+}
@@ -0,0 +1,21 @@
+package ru.practicum.shareit.booking;
+
+import java.time.LocalDateTime;
+
+/**
+ * Группа бронирования по времени: ещё не началось, идёт, закончилось. Хранится в bookings.phase
+ * и переносится вперёд по расписанию, поэтому выборки CURRENT/PAST/FUTURE читают готовую группу из индекса,
+ * а не сравнивают даты каждой строки с текущим моментом.
+ */
+public enum BookingPhase {
+    FUTURE,
+    CURRENT,
+    PAST;
+
+    public static BookingPhase at(LocalDateTime start, LocalDateTime end, LocalDateTime now) {
+        if (start.isAfter(now)) {
+            return FUTURE;
+        }
+        return end.isAfter(now) ? CURRENT : PAST;
+    }
+}
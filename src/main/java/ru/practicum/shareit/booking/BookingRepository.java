@@ -1,44 +1,115 @@
 package ru.practicum.shareit.booking;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface BookingRepository extends JpaRepository<Booking, Long> {
+public interface BookingRepository extends JpaRepository<Booking, Long>, JpaSpecificationExecutor<Booking> {
 
-    // Для пользователя
-    List<Booking> findByBookerIdOrderByStartDesc(Long bookerId, Pageable pageable);
+    @Override
+    @EntityGraph(Booking.WITH_ITEM_AND_BOOKER)
+    Optional<Booking> findById(Long id);
 
-    List<Booking> findByBookerIdAndStartBeforeAndEndAfterOrderByStartDesc(Long bookerId, LocalDateTime now1, LocalDateTime now2, Pageable pageable);
+    @EntityGraph(Booking.WITH_ITEM_AND_BOOKER)
+    List<Booking> findByIdIn(Collection<Long> ids);
 
-    List<Booking> findByBookerIdAndEndBeforeOrderByStartDesc(Long bookerId, LocalDateTime now, Pageable pageable);
+    // Для пользователя
+    @EntityGraph(Booking.WITH_ITEM_AND_BOOKER)
+    List<Booking> findByBookerIdOrderByStartDesc(Long bookerId, Pageable pageable);
 
-    List<Booking> findByBookerIdAndStartAfterOrderByStartDesc(Long bookerId, LocalDateTime now, Pageable pageable);
+    @EntityGraph(Booking.WITH_ITEM_AND_BOOKER)
+    List<Booking> findByBookerIdAndPhaseOrderByStartDesc(Long bookerId, BookingPhase phase, Pageable pageable);
 
+    @EntityGraph(Booking.WITH_ITEM_AND_BOOKER)
     List<Booking> findByBookerIdAndStatusOrderByStartDesc(Long bookerId, BookingStatus status, Pageable pageable);
 
     // Для владельца
-    List<Booking> findByItem_OwnerIdOrderByStartDesc(Long ownerId, Pageable pageable);
-
-    List<Booking> findByItem_OwnerIdAndStartBeforeAndEndAfterOrderByStartDesc(Long ownerId, LocalDateTime now1, LocalDateTime now2, Pageable pageable);
-
-    List<Booking> findByItem_OwnerIdAndEndBeforeOrderByStartDesc(Long ownerId, LocalDateTime now, Pageable pageable);
-
-    List<Booking> findByItem_OwnerIdAndStartAfterOrderByStartDesc(Long ownerId, LocalDateTime now, Pageable pageable);
-
-    List<Booking> findByItem_OwnerIdAndStatusOrderByStartDesc(Long ownerId, BookingStatus status, Pageable pageable);
-
-    // Для получения последнего и следующего бронирования для вещи
-    @Query("select b from Booking b where b.item.id = ?1 and b.status = 'APPROVED' and b.end < ?2 order by b.end desc")
-    List<Booking> findPastByItemOwnerIdOrderByStartDesc(Long itemId, LocalDateTime now, Pageable pageable);
-
-    @Query("select b from Booking b where b.item.id = ?1 and b.status = 'APPROVED' and b.start > ?2 order by b.start asc")
-    List<Booking> findFutureByItemOwnerIdOrderByStartDesc(Long itemId, LocalDateTime now, Pageable pageable);
+    @EntityGraph(Booking.WITH_ITEM_AND_BOOKER)
+    List<Booking> findByOwnerIdOrderByStartDesc(Long ownerId, Pageable pageable);
+
+    @EntityGraph(Booking.WITH_ITEM_AND_BOOKER)
+    List<Booking> findByOwnerIdAndPhaseOrderByStartDesc(Long ownerId, BookingPhase phase, Pageable pageable);
+
+    @EntityGraph(Booking.WITH_ITEM_AND_BOOKER)
+    List<Booking> findByOwnerIdAndStatusOrderByStartDesc(Long ownerId, BookingStatus status, Pageable pageable);
+
+    // Перенос между группами: строки, чья граница прошла, как (id, booker_id, owner_id, phase) под блокировкой,
+    // чтобы счётчики пользователей сдвигались ровно на перенесённые строки
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b.id, b.booker.id, b.ownerId, b.phase from Booking b " +
+            "where b.phase in ('FUTURE', 'CURRENT') and b.end <= ?1")
+    List<Object[]> findEndedForUpdate(LocalDateTime now, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b.id, b.booker.id, b.ownerId, b.phase from Booking b where b.phase = 'FUTURE' and b.start <= ?1")
+    List<Object[]> findStartedForUpdate(LocalDateTime now, Pageable pageable);
+
+    // Версия сдвигается, чтобы запись загруженной до переноса сущности не вернула прежнюю фазу
+    @Modifying
+    @Query("update Booking b set b.phase = ?2, b.version = b.version + 1 where b.id in ?1")
+    int setPhase(Collection<Long> ids, BookingPhase phase);
+
+    // Решение владельца без предварительного чтения: проверка статуса и запись — один оператор,
+    // поэтому из параллельных решений по одному бронированию строку меняет только первое.
+    // Контекст очищается, чтобы загруженные до решения сущности перечитывались с новым статусом
+    @Modifying(clearAutomatically = true)
+    @Query("update Booking b set b.status = ?3, b.version = b.version + 1 " +
+            "where b.id = ?1 and b.ownerId = ?2 and b.status = 'WAITING'")
+    int decideIfWaiting(Long id, Long ownerId, BookingStatus status);
+
+    // Сверка счётчиков: по строке на пользователя, значения в порядке BookingState
+    @Query("select b.booker.id, count(b), " +
+            "sum(case when b.phase = 'CURRENT' then 1 else 0 end), sum(case when b.phase = 'PAST' then 1 else 0 end), " +
+            "sum(case when b.phase = 'FUTURE' then 1 else 0 end), sum(case when b.status = 'WAITING' then 1 else 0 end), " +
+            "sum(case when b.status = 'REJECTED' then 1 else 0 end) " +
+            "from Booking b where b.booker.id in ?1 group by b.booker.id")
+    List<Object[]> countStatesByBookerIds(Collection<Long> bookerIds);
+
+    @Query("select b.ownerId, count(b), " +
+            "sum(case when b.phase = 'CURRENT' then 1 else 0 end), sum(case when b.phase = 'PAST' then 1 else 0 end), " +
+            "sum(case when b.phase = 'FUTURE' then 1 else 0 end), sum(case when b.status = 'WAITING' then 1 else 0 end), " +
+            "sum(case when b.status = 'REJECTED' then 1 else 0 end) " +
+            "from Booking b where b.ownerId in ?1 group by b.ownerId")
+    List<Object[]> countStatesByOwnerIds(Collection<Long> ownerIds);
+
+    // Активные бронирования вещи для проверки пересечений
+    List<Booking> findByItemIdAndStatusInAndEndAfter(Long itemId, Collection<BookingStatus> statuses,
+                                                     LocalDateTime after);
+
+    @Query("select count(b) > 0 from Booking b where b.item.id = ?1 and b.status in ?2 and b.start < ?4 and b.end > ?3")
+    boolean existsOverlap(Long itemId, Collection<BookingStatus> statuses, LocalDateTime start, LocalDateTime end);
+
+    // Последнее и следующее подтверждённые бронирования сразу для набора вещей: по одной строке каждого вида на вещь
+    @Query(value = "select id, start_date, end_date, item_id, booker_id, status, owner_id, phase, version from (" +
+            "select b.*, row_number() over (partition by b.item_id order by b.end_date desc, b.id desc) as rn " +
+            "from bookings b where b.item_id in (:itemIds) and b.status = 'APPROVED' and b.end_date < :now) last_bookings " +
+            "where rn = 1 " +
+            "union all " +
+            "select id, start_date, end_date, item_id, booker_id, status, owner_id, phase, version from (" +
+            "select b.*, row_number() over (partition by b.item_id order by b.start_date asc, b.id asc) as rn " +
+            "from bookings b where b.item_id in (:itemIds) and b.status = 'APPROVED' and b.start_date > :now) next_bookings " +
+            "where rn = 1",
+            nativeQuery = true)
+    List<Booking> findLastAndNextApprovedByItemIds(@Param("itemIds") Collection<Long> itemIds,
+                                                   @Param("now") LocalDateTime now);
+
+    // Ближайшее окончание подтверждённого бронирования после now: момент, когда текущее бронирование станет последним
+    @Query("select b.item.id, min(b.end) from Booking b " +
+            "where b.item.id in ?1 and b.status = 'APPROVED' and b.end > ?2 group by b.item.id")
+    List<Object[]> findEarliestApprovedEndAfterByItemIds(Collection<Long> itemIds, LocalDateTime now);
 
     // Для проверки возможности оставить комментарий
     @Query("select b from Booking b where b.item.id = ?1 and b.booker.id = ?2 and b.status = 'APPROVED' and b.end < ?3")
@@ -0,0 +1,41 @@
+package ru.practicum.shareit.booking;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import ru.practicum.shareit.booking.dto.BookingCursor;
+
+/**
+ * Условия выборки бронирований для постраничного чтения по курсору (start desc, id desc).
+ */
+public final class BookingSpecifications {
+
+    public static final Sort SEEK_ORDER = Sort.by(Sort.Order.desc("start"), Sort.Order.desc("id"));
+
+    private BookingSpecifications() {
+    }
+
+    public static Specification<Booking> bookedBy(Long bookerId) {
+        return (root, query, cb) -> cb.equal(root.get("booker").get("id"), bookerId);
+    }
+
+    public static Specification<Booking> ownedBy(Long ownerId) {
+        return (root, query, cb) -> cb.equal(root.get("ownerId"), ownerId);
+    }
+
+    public static Specification<Booking> inState(BookingState state) {
+        return switch (state) {
+            case ALL -> (root, query, cb) -> cb.conjunction();
+            case CURRENT -> (root, query, cb) -> cb.equal(root.get("phase"), BookingPhase.CURRENT);
+            case PAST -> (root, query, cb) -> cb.equal(root.get("phase"), BookingPhase.PAST);
+            case FUTURE -> (root, query, cb) -> cb.equal(root.get("phase"), BookingPhase.FUTURE);
+            case WAITING -> (root, query, cb) -> cb.equal(root.get("status"), BookingStatus.WAITING);
+            case REJECTED -> (root, query, cb) -> cb.equal(root.get("status"), BookingStatus.REJECTED);
+        };
+    }
+
+    public static Specification<Booking> after(BookingCursor cursor) {
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("start"), cursor.start()),
+                cb.and(cb.equal(root.get("start"), cursor.start()), cb.lessThan(root.get("id"), cursor.id())));
+    }
+}
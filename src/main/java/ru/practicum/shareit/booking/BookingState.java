@@ -6,5 +6,13 @@ public enum BookingState {
     PAST,
     FUTURE,
     WAITING,
-    REJECTED
+    REJECTED;
+
+    public static BookingState parse(String state) {
+        try {
+            return valueOf(state);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Unknown state: " + state);
+        }
+    }
 }
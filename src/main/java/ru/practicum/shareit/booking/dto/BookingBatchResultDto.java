@@ -0,0 +1,27 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Результат одной записи пакета: HTTP-статус, который вернул бы одиночный запрос,
+ * и либо бронирование, либо текст ошибки.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingBatchResultDto {
+    private Integer index;
+    private Integer status;
+    private BookingResponseDto booking;
+    private String error;
+
+    public static BookingBatchResultDto ok(int index, int status, BookingResponseDto booking) {
+        return new BookingBatchResultDto(index, status, booking, null);
+    }
+
+    public static BookingBatchResultDto failed(int index, int status, String error) {
+        return new BookingBatchResultDto(index, status, null, error);
+    }
+}
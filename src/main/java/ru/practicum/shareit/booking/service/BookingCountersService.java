@@ -0,0 +1,250 @@
+package ru.practicum.shareit.booking.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingCounters;
+import ru.practicum.shareit.booking.BookingCounters.Role;
+import ru.practicum.shareit.booking.BookingCountersRepository;
+import ru.practicum.shareit.booking.BookingPhase;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingState;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Ведёт счётчики {@link BookingCounters}: изменения бронирований превращаются в разности по пользователям,
+ * которые прибавляются одним UPDATE на пользователя и роль. Строки обновляются по возрастанию (пользователь, роль),
+ * поэтому параллельные транзакции берут блокировки в одном порядке. Сверка пересчитывает счётчики по bookings.
+ */
+@Slf4j
+@Service
+public class BookingCountersService {
+
+    static final String CORRECTED = "shareit.bookings.counters.corrected";
+
+    private static final int BATCH_SIZE = 500;
+    private static final int STATES = BookingState.values().length;
+    private static final Comparator<BookingCounters.Key> KEY_ORDER =
+            Comparator.comparing(BookingCounters.Key::getUserId).thenComparing(BookingCounters.Key::getRole);
+
+    private final BookingCountersRepository countersRepository;
+    private final BookingRepository bookingRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    public BookingCountersService(BookingCountersRepository countersRepository, BookingRepository bookingRepository,
+                                  UserRepository userRepository, PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry) {
+        this.countersRepository = countersRepository;
+        this.bookingRepository = bookingRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Transactional(readOnly = true)
+    public Map<BookingState, Long> summary(Long userId, Role role) {
+        long[] counts = countersRepository.findById(new BookingCounters.Key(userId, role))
+                .map(BookingCounters::getCounts)
+                .orElseGet(() -> new long[STATES]);
+        Map<BookingState, Long> summary = new EnumMap<>(BookingState.class);
+        for (BookingState state : BookingState.values()) {
+            summary.put(state, counts[state.ordinal()]);
+        }
+        return summary;
+    }
+
+    @Transactional
+    public void onCreated(Collection<Booking> bookings) {
+        Deltas deltas = new Deltas();
+        for (Booking booking : bookings) {
+            long[] counts = countsOf(booking.getPhase(), booking.getStatus());
+            deltas.add(booking.getBooker().getId(), Role.BOOKER, counts, 1);
+            deltas.add(booking.getOwnerId(), Role.OWNER, counts, 1);
+        }
+        apply(deltas);
+    }
+
+    /**
+     * Решение владельца: бронирования уже получили новый статус, до решения все были WAITING.
+     */
+    @Transactional
+    public void onDecided(Collection<Booking> bookings) {
+        Deltas deltas = new Deltas();
+        for (Booking booking : bookings) {
+            long[] before = countsOf(booking.getPhase(), BookingStatus.WAITING);
+            long[] after = countsOf(booking.getPhase(), booking.getStatus());
+            deltas.add(booking.getBooker().getId(), Role.BOOKER, before, -1);
+            deltas.add(booking.getBooker().getId(), Role.BOOKER, after, 1);
+            deltas.add(booking.getOwnerId(), Role.OWNER, before, -1);
+            deltas.add(booking.getOwnerId(), Role.OWNER, after, 1);
+        }
+        apply(deltas);
+    }
+
+    /**
+     * Перенос между группами строк вида (id, booker_id, owner_id, phase) из BookingRepository в группу {@code to}.
+     */
+    @Transactional
+    public void onPhaseMoved(List<Object[]> rows, BookingPhase to) {
+        Deltas deltas = new Deltas();
+        for (Object[] row : rows) {
+            long[] move = new long[STATES];
+            move[stateOf((BookingPhase) row[3]).ordinal()] = -1;
+            move[stateOf(to).ordinal()] = 1;
+            deltas.add((Long) row[1], Role.BOOKER, move, 1);
+            deltas.add((Long) row[2], Role.OWNER, move, 1);
+        }
+        apply(deltas);
+    }
+
+    /**
+     * Сверяет счётчики всех пользователей с таблицей bookings и исправляет расходящиеся.
+     * Каждая страница пользователей — своя транзакция: строки счётчиков блокируются до подсчёта, поэтому
+     * параллельные изменения либо уже учтены в подсчёте, либо прибавятся после исправления.
+     * Возвращает число исправленных строк.
+     */
+    @Scheduled(fixedDelayString = "${shareit.booking-counters.reconcile-interval:PT1H}",
+            initialDelayString = "${shareit.booking-counters.reconcile-interval:PT1H}")
+    public int reconcile() {
+        int fixed = 0;
+        List<Long> userIds;
+        Long lastId = 0L;
+        do {
+            userIds = userRepository.findIdsAfter(lastId, PageRequest.of(0, BATCH_SIZE));
+            if (userIds.isEmpty()) {
+                break;
+            }
+            List<Long> page = userIds;
+            fixed += transactionTemplate.execute(status -> reconcile(page));
+            lastId = userIds.get(userIds.size() - 1);
+        } while (userIds.size() == BATCH_SIZE);
+        if (fixed > 0) {
+            log.info("Исправлены счётчики бронирований: {} строк", fixed);
+            meterRegistry.counter(CORRECTED).increment(fixed);
+        }
+        return fixed;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        reconcile();
+    }
+
+    private int reconcile(List<Long> userIds) {
+        Map<BookingCounters.Key, BookingCounters> stored = new HashMap<>();
+        for (BookingCounters counters : countersRepository.findByUserIdInForUpdate(userIds)) {
+            stored.put(new BookingCounters.Key(counters.getUserId(), counters.getRole()), counters);
+        }
+        Map<BookingCounters.Key, long[]> actual = new HashMap<>();
+        bookingRepository.countStatesByBookerIds(userIds).forEach(row -> actual.put(
+                new BookingCounters.Key((Long) row[0], Role.BOOKER), toCounts(row)));
+        bookingRepository.countStatesByOwnerIds(userIds).forEach(row -> actual.put(
+                new BookingCounters.Key((Long) row[0], Role.OWNER), toCounts(row)));
+
+        int fixed = 0;
+        for (Long userId : userIds) {
+            for (Role role : Role.values()) {
+                BookingCounters.Key key = new BookingCounters.Key(userId, role);
+                long[] counts = actual.getOrDefault(key, new long[STATES]);
+                BookingCounters counters = stored.get(key);
+                if (counters != null) {
+                    if (!Arrays.equals(counters.getCounts(), counts)) {
+                        counters.setCounts(counts);
+                        fixed++;
+                    }
+                } else if (actual.containsKey(key) && createIfAbsent(key, counts)) {
+                    fixed++;
+                }
+            }
+        }
+        return fixed;
+    }
+
+    private void apply(Deltas deltas) {
+        deltas.byKey.forEach((key, delta) -> {
+            if (Arrays.stream(delta).allMatch(value -> value == 0)) {
+                return;
+            }
+            if (add(key, delta) == 0 && !createIfAbsent(key, delta) && add(key, delta) != 1) {
+                throw new IllegalStateException("Нет строки счётчиков пользователя " + key.getUserId()
+                        + " с ролью " + key.getRole());
+            }
+        });
+    }
+
+    private int add(BookingCounters.Key key, long[] delta) {
+        return countersRepository.add(key.getUserId(), key.getRole(),
+                delta[0], delta[1], delta[2], delta[3], delta[4], delta[5]);
+    }
+
+    // Строку создаёт тот, кто первым заблокировал пользователя; остальные дожидаются коммита и получают false,
+    // после чего apply прибавляет к созданной строке свою разность
+    private boolean createIfAbsent(BookingCounters.Key key, long[] counts) {
+        userRepository.lockById(key.getUserId());
+        if (countersRepository.existsById(key)) {
+            return false;
+        }
+        countersRepository.saveAndFlush(new BookingCounters(key.getUserId(), key.getRole(), counts));
+        return true;
+    }
+
+    private static long[] countsOf(BookingPhase phase, BookingStatus status) {
+        long[] counts = new long[STATES];
+        counts[BookingState.ALL.ordinal()] = 1;
+        counts[stateOf(phase).ordinal()] = 1;
+        if (status == BookingStatus.WAITING) {
+            counts[BookingState.WAITING.ordinal()] = 1;
+        } else if (status == BookingStatus.REJECTED) {
+            counts[BookingState.REJECTED.ordinal()] = 1;
+        }
+        return counts;
+    }
+
+    private static BookingState stateOf(BookingPhase phase) {
+        return switch (phase) {
+            case FUTURE -> BookingState.FUTURE;
+            case CURRENT -> BookingState.CURRENT;
+            case PAST -> BookingState.PAST;
+        };
+    }
+
+    private static long[] toCounts(Object[] row) {
+        long[] counts = new long[STATES];
+        for (int i = 0; i < STATES; i++) {
+            counts[i] = ((Number) row[i + 1]).longValue();
+        }
+        return counts;
+    }
+
+    private static final class Deltas {
+
+        private final Map<BookingCounters.Key, long[]> byKey = new TreeMap<>(KEY_ORDER);
+
+        void add(Long userId, Role role, long[] counts, int sign) {
+            long[] delta = byKey.computeIfAbsent(new BookingCounters.Key(userId, role), key -> new long[STATES]);
+            for (int i = 0; i < STATES; i++) {
+                delta[i] += sign * counts[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.dto.BookingEventDto;
+import ru.practicum.shareit.outbox.Outbox;
+
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * События жизненного цикла бронирования в outbox; пишутся в транзакции самого изменения.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookingEvents {
+
+    public static final String AGGREGATE = "booking";
+    public static final String CREATED = "BookingCreated";
+    public static final String DECIDED = "BookingDecided";
+
+    private final Outbox outbox;
+
+    public void onCreated(Collection<Booking> bookings) {
+        append(bookings, CREATED);
+    }
+
+    public void onDecided(Collection<Booking> bookings) {
+        append(bookings, DECIDED);
+    }
+
+    private void append(Collection<Booking> bookings, String eventType) {
+        outbox.appendAll(bookings.stream()
+                .sorted(Comparator.comparing(Booking::getId))
+                .map(booking -> new Outbox.Entry(AGGREGATE, booking.getId(), eventType, new BookingEventDto(
+                        booking.getId(), booking.getItem().getId(), booking.getOwnerId(),
+                        booking.getBooker().getId(), booking.getStatus().name())))
+                .toList());
+    }
+}
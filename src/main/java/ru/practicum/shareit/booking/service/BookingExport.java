@@ -0,0 +1,13 @@
+package ru.practicum.shareit.booking.service;
+
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+
+import java.util.function.Consumer;
+
+/**
+ * Проверенная заранее выгрузка бронирований: строки читаются из БД только при вызове {@link #forEach}.
+ */
+@FunctionalInterface
+public interface BookingExport {
+    void forEach(Consumer<BookingResponseDto> action);
+}
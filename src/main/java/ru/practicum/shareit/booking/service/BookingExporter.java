@@ -0,0 +1,57 @@
+package ru.practicum.shareit.booking.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.jpa.AvailableHints;
+import org.hibernate.query.Query;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingSpecifications;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.mapper.BookingMapper;
+
+import java.util.function.Consumer;
+
+/**
+ * Читает бронирования однонаправленным курсором JDBC порциями по {@value #FETCH_SIZE} строк
+ * и периодически очищает контекст персистентности, так что память не зависит от объёма выгрузки.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookingExporter {
+
+    private static final int FETCH_SIZE = 500;
+
+    private final EntityManager entityManager;
+
+    @Transactional(readOnly = true)
+    public void export(Specification<Booking> spec, Consumer<BookingResponseDto> action) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Booking> criteria = cb.createQuery(Booking.class);
+        Root<Booking> root = criteria.from(Booking.class);
+        criteria.where(spec.toPredicate(root, criteria, cb));
+        criteria.orderBy(QueryUtils.toOrders(BookingSpecifications.SEEK_ORDER, root, cb));
+
+        TypedQuery<Booking> query = entityManager.createQuery(criteria)
+                .setHint(AvailableHints.HINT_FETCH_SIZE, FETCH_SIZE)
+                .setHint(AvailableHints.HINT_SPEC_FETCH_GRAPH, entityManager.getEntityGraph(Booking.WITH_ITEM_AND_BOOKER));
+        try (ScrollableResults<Booking> rows = query.unwrap(Query.class).scroll(ScrollMode.FORWARD_ONLY)) {
+            int read = 0;
+            while (rows.next()) {
+                action.accept(BookingMapper.toResponseDto(rows.get()));
+                if (++read % FETCH_SIZE == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+}
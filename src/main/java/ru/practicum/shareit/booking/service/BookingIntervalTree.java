@@ -0,0 +1,194 @@
+package ru.practicum.shareit.booking.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Дерево интервалов [start, end) бронирований одной вещи: декартово дерево по (start, id),
+ * где в каждом узле хранится максимальный end поддерева. Вставка, удаление и поиск
+ * пересечения работают за ожидаемое O(log n). Потокобезопасность обеспечивает вызывающий.
+ * Интервалы, закончившиеся не позже {@code horizon}, дерево может не хранить.
+ */
+class BookingIntervalTree {
+
+    private Node root;
+    private int size;
+    private LocalDateTime horizon;
+
+    BookingIntervalTree(LocalDateTime horizon) {
+        this.horizon = horizon;
+    }
+
+    LocalDateTime horizon() {
+        return horizon;
+    }
+
+    void add(Long bookingId, LocalDateTime start, LocalDateTime end) {
+        root = insert(root, new Node(bookingId, start, end));
+        size++;
+    }
+
+    void remove(Long bookingId, LocalDateTime start) {
+        root = delete(root, bookingId, start);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Удаляет интервалы, закончившиеся не позже {@code horizon}, кроме {@code kept}, и сдвигает горизонт.
+     * Возвращает число удалённых.
+     */
+    int removeEndedBefore(LocalDateTime horizon, Set<Long> kept) {
+        List<Node> ended = new ArrayList<>();
+        collectEnded(root, horizon, kept, ended);
+        for (Node node : ended) {
+            remove(node.bookingId, node.start);
+        }
+        this.horizon = horizon;
+        return ended.size();
+    }
+
+    /**
+     * Возвращает id любого интервала, пересекающегося с [start, end), или null.
+     */
+    Long findOverlap(LocalDateTime start, LocalDateTime end) {
+        Node node = root;
+        while (node != null) {
+            if (node.start.isBefore(end) && start.isBefore(node.end)) {
+                return node.bookingId;
+            }
+            // Если в левом поддереве есть интервал с концом позже start, пересечение может быть только там
+            // или его нет вовсе: у всех узлов правее начало не раньше, чем у кандидатов слева
+            if (node.left != null && node.left.maxEnd.isAfter(start)) {
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return null;
+    }
+
+    private static void collectEnded(Node node, LocalDateTime horizon, Set<Long> kept, List<Node> ended) {
+        if (node == null) {
+            return;
+        }
+        collectEnded(node.left, horizon, kept, ended);
+        if (!node.end.isAfter(horizon) && !kept.contains(node.bookingId)) {
+            ended.add(node);
+        }
+        collectEnded(node.right, horizon, kept, ended);
+    }
+
+    private Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (added.compareTo(node) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        node.update();
+        return node;
+    }
+
+    private Node delete(Node node, Long bookingId, LocalDateTime start) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(start, bookingId, node.start, node.bookingId);
+        if (cmp < 0) {
+            node.left = delete(node.left, bookingId, start);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, bookingId, start);
+        } else {
+            size--;
+            return merge(node.left, node.right);
+        }
+        node.update();
+        return node;
+    }
+
+    private Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    private static int compare(LocalDateTime start1, Long id1, LocalDateTime start2, Long id2) {
+        int cmp = start1.compareTo(start2);
+        return cmp != 0 ? cmp : id1.compareTo(id2);
+    }
+
+    private static final class Node implements Comparable<Node> {
+        private final Long bookingId;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private LocalDateTime maxEnd;
+        private Node left;
+        private Node right;
+
+        Node(Long bookingId, LocalDateTime start, LocalDateTime end) {
+            this.bookingId = bookingId;
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+        }
+
+        void update() {
+            maxEnd = end;
+            if (left != null && left.maxEnd.isAfter(maxEnd)) {
+                maxEnd = left.maxEnd;
+            }
+            if (right != null && right.maxEnd.isAfter(maxEnd)) {
+                maxEnd = right.maxEnd;
+            }
+        }
+
+        @Override
+        public int compareTo(Node other) {
+            return compare(start, bookingId, other.start, other.bookingId);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package ru.practicum.shareit.booking.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.exception.GlobalExceptionHandler;
+
+import java.util.Locale;
+
+/**
+ * Счётчик отклонённых бронирований {@value #REJECTED}. Тег reason: owner — отказ владельца,
+ * иначе статус ответа, с которым не прошло создание (bad_request, not_found, conflict).
+ */
+@Component
+@RequiredArgsConstructor
+public class BookingMetrics {
+
+    static final String REJECTED = "shareit.bookings.rejected";
+
+    private final MeterRegistry meterRegistry;
+
+    void rejectedByOwner() {
+        meterRegistry.counter(REJECTED, "reason", "owner").increment();
+    }
+
+    void rejected(RuntimeException e) {
+        String reason = GlobalExceptionHandler.statusOf(e).name().toLowerCase(Locale.ROOT);
+        meterRegistry.counter(REJECTED, "reason", reason).increment();
+    }
+}
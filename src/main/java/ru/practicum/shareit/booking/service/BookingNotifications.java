@@ -0,0 +1,45 @@
+package ru.practicum.shareit.booking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.BookingEventDto;
+import ru.practicum.shareit.booking.dto.BookingNotificationDto;
+import ru.practicum.shareit.notification.NotificationBus;
+import ru.practicum.shareit.outbox.OutboxConsumer;
+import ru.practicum.shareit.outbox.OutboxEvent;
+
+/**
+ * Уведомления о бронированиях из outbox: владелец узнаёт о новых заявках, арендатор — о решении владельца.
+ * Повторная доставка события даёт повторное уведомление с тем же содержимым, клиент его просто перезапишет.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookingNotifications implements OutboxConsumer {
+
+    public static final String EVENT = "booking";
+
+    private final NotificationBus notificationBus;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public String aggregateType() {
+        return BookingEvents.AGGREGATE;
+    }
+
+    @Override
+    public void accept(OutboxEvent event) throws JsonProcessingException {
+        Long recipient;
+        BookingEventDto booking = objectMapper.readValue(event.getPayload(), BookingEventDto.class);
+        switch (event.getEventType()) {
+            case BookingEvents.CREATED -> recipient = booking.getOwnerId();
+            case BookingEvents.DECIDED -> recipient = booking.getBookerId();
+            default -> {
+                return;
+            }
+        }
+        notificationBus.publish(recipient, EVENT,
+                new BookingNotificationDto(booking.getBookingId(), booking.getItemId(), booking.getStatus()));
+    }
+}
@@ -0,0 +1,238 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.common.TransactionCallbacks;
+import ru.practicum.shareit.exception.ConflictException;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Не даёт забронировать вещь на период, пересекающийся с другим WAITING/APPROVED бронированием.
+ * Для каждой вещи держится дерево интервалов, загружаемое из БД при первом обращении;
+ * проверка и сохранение выполняются под одной из полос блокировок, выбираемой по id вещи.
+ * Закончившиеся интервалы периодически удаляются из деревьев, а опустевшие деревья — из памяти;
+ * период, начинающийся раньше горизонта дерева, дополнительно проверяется запросом к БД.
+ * В PostgreSQL пересечения запрещает ещё и исключающее ограничение {@value #OVERLAP_CONSTRAINT}.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookingOverlapGuard {
+
+    public static final String OVERLAP_MESSAGE = "Вещь уже забронирована на пересекающийся период";
+
+    static final Set<BookingStatus> ACTIVE_STATUSES = EnumSet.of(BookingStatus.WAITING, BookingStatus.APPROVED);
+
+    // Исключающее ограничение из V11__Booking_overlap_constraint и его SQLSTATE в PostgreSQL
+    static final String OVERLAP_CONSTRAINT = "bookings_no_overlap";
+    private static final String EXCLUSION_VIOLATION = "23P01";
+
+    private static final int STRIPES = 256;
+
+    private final BookingRepository bookingRepository;
+    private final ReentrantLock[] locks = createLocks();
+    private final Map<Long, BookingIntervalTree> trees = new ConcurrentHashMap<>();
+    // Сохранённые, но ещё не закоммиченные бронирования: их интервалы не удаляются, пока строку не видно в БД
+    private final Set<Long> uncommitted = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Проверяет период на пересечение и, если он свободен, сохраняет бронирование через {@code save}.
+     * {@code save} должен сбрасывать вставку в БД, иначе нарушение ограничения всплывёт уже после блокировки.
+     */
+    public Booking reserve(Long itemId, LocalDateTime start, LocalDateTime end, Supplier<Booking> save) {
+        ReentrantLock lock = lockFor(itemId);
+        lock.lock();
+        try {
+            BookingIntervalTree tree = treeFor(itemId);
+            if (!isFree(itemId, tree, start, end)) {
+                throw new ConflictException(OVERLAP_MESSAGE);
+            }
+            Booking booking;
+            try {
+                booking = save.get();
+            } catch (DataIntegrityViolationException e) {
+                throw translate(e);
+            }
+            tree.add(booking.getId(), booking.getStart(), booking.getEnd());
+            track(booking);
+            return booking;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Пакетный вариант {@link #reserve}: за один проход отбирает бронирования, не пересекающиеся ни с
+     * сохранёнными, ни с принятыми ранее в этом же пакете, и сохраняет их одним вызовом {@code saveAll}.
+     * Возвращает принятые экземпляры; остальные отклонены из-за пересечения.
+     */
+    public List<Booking> reserveAll(List<Booking> bookings, Consumer<List<Booking>> saveAll) {
+        // Полосы блокируются по возрастанию номера, чтобы пакеты с общими вещами не взаимоблокировались
+        int[] stripes = bookings.stream()
+                .mapToInt(booking -> stripeOf(booking.getItem().getId()))
+                .distinct()
+                .sorted()
+                .toArray();
+        for (int stripe : stripes) {
+            locks[stripe].lock();
+        }
+        List<Booking> accepted = new ArrayList<>();
+        try {
+            // Принятые занимают дерево под временными отрицательными id, пока у них нет настоящих
+            long tempId = 0;
+            for (Booking booking : bookings) {
+                BookingIntervalTree tree = treeFor(booking.getItem().getId());
+                if (isFree(booking.getItem().getId(), tree, booking.getStart(), booking.getEnd())) {
+                    tree.add(--tempId, booking.getStart(), booking.getEnd());
+                    accepted.add(booking);
+                }
+            }
+            for (int i = 0; i < accepted.size(); i++) {
+                Booking booking = accepted.get(i);
+                trees.get(booking.getItem().getId()).remove(-(i + 1L), booking.getStart());
+            }
+            if (accepted.isEmpty()) {
+                return accepted;
+            }
+            try {
+                saveAll.accept(accepted);
+            } catch (DataIntegrityViolationException e) {
+                throw translate(e);
+            }
+            for (Booking booking : accepted) {
+                trees.get(booking.getItem().getId()).add(booking.getId(), booking.getStart(), booking.getEnd());
+                track(booking);
+            }
+            return accepted;
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                locks[stripes[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Освобождает период бронирования, перешедшего в неактивный статус, после коммита транзакции.
+     */
+    public void releaseAfterCommit(Booking booking) {
+        TransactionCallbacks.afterCommit(() -> release(booking));
+    }
+
+    /**
+     * Удаляет из деревьев интервалы, закончившиеся к текущему моменту, и опустевшие деревья.
+     * Возвращает число удалённых интервалов.
+     */
+    @Scheduled(fixedDelayString = "${shareit.booking-overlap.prune-interval:PT1H}")
+    public int prune() {
+        LocalDateTime now = LocalDateTime.now();
+        int pruned = 0;
+        for (Long itemId : trees.keySet()) {
+            ReentrantLock lock = lockFor(itemId);
+            lock.lock();
+            try {
+                BookingIntervalTree tree = trees.get(itemId);
+                if (tree == null) {
+                    continue;
+                }
+                pruned += tree.removeEndedBefore(now, uncommitted);
+                if (tree.size() == 0) {
+                    trees.remove(itemId);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return pruned;
+    }
+
+    // Период занят в дереве до коммита, чтобы конкурент не проскочил; при откате освобождаем его
+    private void track(Booking booking) {
+        uncommitted.add(booking.getId());
+        TransactionCallbacks.afterCommit(() -> uncommitted.remove(booking.getId()));
+        TransactionCallbacks.afterRollback(() -> {
+            uncommitted.remove(booking.getId());
+            release(booking);
+        });
+    }
+
+    // Интервалы, закончившиеся до горизонта, в дереве могут отсутствовать: для таких периодов спрашиваем БД
+    private boolean isFree(Long itemId, BookingIntervalTree tree, LocalDateTime start, LocalDateTime end) {
+        if (tree.findOverlap(start, end) != null) {
+            return false;
+        }
+        return !start.isBefore(tree.horizon()) || !bookingRepository.existsOverlap(itemId, ACTIVE_STATUSES, start, end);
+    }
+
+    // Конфликтом считается только нарушение ограничения на пересечения, созданное другим экземпляром приложения;
+    // прочие нарушения целостности пробрасываются как есть
+    private static RuntimeException translate(DataIntegrityViolationException e) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException
+                    && EXCLUSION_VIOLATION.equals(sqlException.getSQLState())
+                    && String.valueOf(sqlException.getMessage()).contains(OVERLAP_CONSTRAINT)) {
+                return new ConflictException(OVERLAP_MESSAGE);
+            }
+        }
+        return e;
+    }
+
+    private void release(Booking booking) {
+        Long itemId = booking.getItem().getId();
+        ReentrantLock lock = lockFor(itemId);
+        lock.lock();
+        try {
+            BookingIntervalTree tree = trees.get(itemId);
+            if (tree != null) {
+                tree.remove(booking.getId(), booking.getStart());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Вызывается под блокировкой полосы вещи, поэтому загрузка из БД для одной вещи не выполняется дважды
+    private BookingIntervalTree treeFor(Long itemId) {
+        BookingIntervalTree tree = trees.get(itemId);
+        if (tree == null) {
+            LocalDateTime horizon = LocalDateTime.now();
+            tree = new BookingIntervalTree(horizon);
+            for (Booking booking : bookingRepository.findByItemIdAndStatusInAndEndAfter(itemId, ACTIVE_STATUSES,
+                    horizon)) {
+                tree.add(booking.getId(), booking.getStart(), booking.getEnd());
+            }
+            trees.put(itemId, tree);
+        }
+        return tree;
+    }
+
+    private ReentrantLock lockFor(Long itemId) {
+        return locks[stripeOf(itemId)];
+    }
+
+    private static int stripeOf(Long itemId) {
+        return Math.floorMod(itemId.hashCode(), STRIPES);
+    }
+
+    private static ReentrantLock[] createLocks() {
+        ReentrantLock[] locks = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+}
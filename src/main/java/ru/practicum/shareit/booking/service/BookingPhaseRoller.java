@@ -0,0 +1,55 @@
+package ru.practicum.shareit.booking.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.BookingPhase;
+import ru.practicum.shareit.booking.BookingRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Переносит бронирования FUTURE → CURRENT → PAST, когда проходят их границы. Кандидаты выбираются
+ * по индексам (phase, end_date) и (phase, start_date), поэтому затрагиваются только пересёкшие границу строки,
+ * а счётчики пользователей сдвигаются ровно на перенесённые бронирования.
+ * Выборки CURRENT/PAST/FUTURE отстают от часов не больше чем на {@code shareit.booking-phases.roll-interval}.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookingPhaseRoller {
+
+    static final String MOVED = "shareit.bookings.phase.moved";
+
+    private static final int BATCH_SIZE = 500;
+
+    private final BookingRepository bookingRepository;
+    private final BookingCountersService countersService;
+    private final MeterRegistry meterRegistry;
+
+    @Scheduled(fixedDelayString = "${shareit.booking-phases.roll-interval:PT1S}")
+    @Transactional
+    public void rollForward() {
+        LocalDateTime now = LocalDateTime.now();
+        // Сначала закончившиеся (в том числе сразу из FUTURE), затем начавшиеся
+        move(page -> bookingRepository.findEndedForUpdate(now, page), BookingPhase.PAST);
+        move(page -> bookingRepository.findStartedForUpdate(now, page), BookingPhase.CURRENT);
+    }
+
+    private void move(Function<PageRequest, List<Object[]>> candidates, BookingPhase to) {
+        List<Object[]> rows;
+        do {
+            rows = candidates.apply(PageRequest.of(0, BATCH_SIZE));
+            if (rows.isEmpty()) {
+                break;
+            }
+            bookingRepository.setPhase(rows.stream().map(row -> (Long) row[0]).toList(), to);
+            countersService.onPhaseMoved(rows, to);
+            meterRegistry.counter(MOVED, "phase", to.name()).increment(rows.size());
+        } while (rows.size() == BATCH_SIZE);
+    }
+}
@@ -1,14 +1,26 @@
 package ru.practicum.shareit.booking.service;
 
+import ru.practicum.shareit.booking.BookingState;
+import ru.practicum.shareit.booking.dto.BookingApprovalDto;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
 import ru.practicum.shareit.booking.dto.BookingCreateDto;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.common.Tagged;
 
 import java.util.List;
+import java.util.Map;
 
 public interface BookingService {
     BookingResponseDto createBooking(BookingCreateDto bookingCreateDto, Long bookerId);
     BookingResponseDto approveBooking(Long bookingId, Boolean approved, Long ownerId);
+    List<BookingBatchResultDto> createBookings(List<BookingCreateDto> bookingCreateDtos, Long bookerId);
+    List<BookingBatchResultDto> approveBookings(List<BookingApprovalDto> approvals, Long ownerId);
     BookingResponseDto getBookingById(Long bookingId, Long userId);
-    List<BookingResponseDto> getUserBookings(String state, Long userId, Integer from, Integer size);
-    List<BookingResponseDto> getOwnerBookings(String state, Long ownerId, Integer from, Integer size);
+    Tagged<BookingResponseDto> getTaggedBooking(Long bookingId, Long userId);
+    List<BookingResponseDto> getUserBookings(String state, Long userId, Integer from, Integer size, String cursor);
+    List<BookingResponseDto> getOwnerBookings(String state, Long ownerId, Integer from, Integer size, String cursor);
+    Map<BookingState, Long> getUserBookingSummary(Long userId);
+    Map<BookingState, Long> getOwnerBookingSummary(Long ownerId);
+    BookingExport exportUserBookings(String state, Long userId);
+    BookingExport exportOwnerBookings(String state, Long ownerId);
 }
@@ -1,176 +1,438 @@
 package ru.practicum.shareit.booking.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingCounters;
+import ru.practicum.shareit.booking.BookingPhase;
 import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingSpecifications;
 import ru.practicum.shareit.booking.BookingState;
 import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.BookingApprovalDto;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
 import ru.practicum.shareit.booking.dto.BookingCreateDto;
+import ru.practicum.shareit.booking.dto.BookingCursor;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
+import ru.practicum.shareit.cache.EntityCache;
+import ru.practicum.shareit.common.EntityTags;
+import ru.practicum.shareit.common.FromSizeRequest;
+import ru.practicum.shareit.common.Tagged;
 import ru.practicum.shareit.exception.ConflictException;
 import ru.practicum.shareit.exception.ForbiddenException;
+import ru.practicum.shareit.exception.GlobalExceptionHandler;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.model.ItemRepository;
+import ru.practicum.shareit.item.service.ItemBookingPointersService;
 import ru.practicum.shareit.user.User;
-import ru.practicum.shareit.user.UserRepository;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Transactional(readOnly = true)
 public class BookingServiceImpl implements BookingService {
 
+    static final int MAX_BATCH_SIZE = 1000;
+
     private final BookingRepository bookingRepository;
-    private final UserRepository userRepository;
     private final ItemRepository itemRepository;
+    private final EntityCache<User> userCache;
+    private final EntityCache<Item> itemCache;
+    private final BookingOverlapGuard overlapGuard;
+    private final ItemBookingPointersService pointersService;
+    private final BookingExporter bookingExporter;
+    private final BookingMetrics bookingMetrics;
+    private final BookingCountersService countersService;
+    private final BookingEvents bookingEvents;
+
+    // Порядок внутри одинакового start, совпадающий с порядком курсора
+    private static final Sort TIE_BREAK = Sort.by(Sort.Direction.DESC, "id");
 
     @Override
+    @Transactional
     public BookingResponseDto createBooking(BookingCreateDto bookingCreateDto, Long bookerId) {
-        User booker = getUserById(bookerId);
-        Item item = getItemById(bookingCreateDto.getItemId());
+        try {
+            User booker = getUserById(bookerId);
+            Item item = getItemById(bookingCreateDto.getItemId());
+            validateNewBooking(bookingCreateDto, bookerId, item);
 
-        if (item.getOwnerId().equals(bookerId)) {
-            throw new NoSuchElementException("Владелец не может бронировать свою вещь");
+            Booking booking = newBooking(bookingCreateDto, item, booker);
+            Booking savedBooking = overlapGuard.reserve(item.getId(), booking.getStart(), booking.getEnd(),
+                    () -> bookingRepository.saveAndFlush(booking));
+            countersService.onCreated(List.of(savedBooking));
+            bookingEvents.onCreated(List.of(savedBooking));
+            return BookingMapper.toResponseDto(savedBooking);
+        } catch (NoSuchElementException | IllegalArgumentException | ConflictException e) {
+            bookingMetrics.rejected(e);
+            throw e;
         }
+    }
 
-        if (!item.getAvailable()) {
-            throw new IllegalArgumentException("Вещь недоступна для бронирования");
+    @Override
+    @Transactional
+    public BookingResponseDto approveBooking(Long bookingId, Boolean approved, Long ownerId) {
+        BookingStatus status = approved ? BookingStatus.APPROVED : BookingStatus.REJECTED;
+        int decided = bookingRepository.decideIfWaiting(bookingId, ownerId, status);
+        Booking booking = findBookingById(bookingId);
+        if (decided == 0) {
+            // Условное обновление не применилось: чужое бронирование — 403, иначе решение уже принято,
+            // в том числе параллельным запросом, выигравшим гонку, — 409
+            checkOwner(booking, ownerId);
+            throw alreadyDecided(booking);
+        }
+        if (!approved) {
+            bookingMetrics.rejectedByOwner();
         }
 
-        if (bookingCreateDto.getStart().isAfter(bookingCreateDto.getEnd()) ||
-            bookingCreateDto.getStart().isEqual(bookingCreateDto.getEnd())) {
-            throw new IllegalArgumentException("Дата начала бронирования не может быть позже или равна дате окончания");
+        countersService.onDecided(List.of(booking));
+        bookingEvents.onDecided(List.of(booking));
+        if (approved) {
+            pointersService.onApproved(booking);
+        } else {
+            overlapGuard.releaseAfterCommit(booking);
         }
+        return BookingMapper.toResponseDto(booking);
+    }
 
-        Booking booking = BookingMapper.toBooking(bookingCreateDto, bookerId);
-        booking.setItem(item);
-        booking.setBooker(booker);
-        booking.setStatus(BookingStatus.WAITING);
+    @Override
+    @Transactional
+    public List<BookingBatchResultDto> createBookings(List<BookingCreateDto> bookingCreateDtos, Long bookerId) {
+        checkBatchSize(bookingCreateDtos);
+        User booker = getUserById(bookerId);
+        Set<Long> itemIds = bookingCreateDtos.stream()
+                .map(BookingCreateDto::getItemId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Item> items = itemRepository.findAllById(itemIds).stream()
+                .collect(Collectors.toMap(Item::getId, item -> item));
+
+        BookingBatchResultDto[] results = new BookingBatchResultDto[bookingCreateDtos.size()];
+        List<Booking> candidates = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < bookingCreateDtos.size(); i++) {
+            BookingCreateDto dto = bookingCreateDtos.get(i);
+            try {
+                Item item = items.get(dto.getItemId());
+                if (item == null) {
+                    throw new NoSuchElementException("Вещь с ID " + dto.getItemId() + " не найдена");
+                }
+                validateNewBooking(dto, bookerId, item);
+                candidates.add(newBooking(dto, item, booker));
+                positions.add(i);
+            } catch (NoSuchElementException | IllegalArgumentException e) {
+                results[i] = rejected(i, e);
+            }
+        }
 
-        Booking savedBooking = bookingRepository.save(booking);
-        return BookingMapper.toResponseDto(savedBooking);
+        Set<Booking> accepted = Collections.newSetFromMap(new IdentityHashMap<>());
+        accepted.addAll(overlapGuard.reserveAll(candidates, bookingRepository::saveAllAndFlush));
+        countersService.onCreated(accepted);
+        bookingEvents.onCreated(accepted);
+        for (int j = 0; j < candidates.size(); j++) {
+            Booking booking = candidates.get(j);
+            int i = positions.get(j);
+            results[i] = accepted.contains(booking)
+                    ? BookingBatchResultDto.ok(i, HttpStatus.CREATED.value(), BookingMapper.toResponseDto(booking))
+                    : rejected(i, new ConflictException(BookingOverlapGuard.OVERLAP_MESSAGE));
+        }
+        return Arrays.asList(results);
     }
 
     @Override
-    public BookingResponseDto approveBooking(Long bookingId, Boolean approved, Long ownerId) {
-        Booking booking = findBookingById(bookingId);
+    @Transactional
+    public List<BookingBatchResultDto> approveBookings(List<BookingApprovalDto> approvals, Long ownerId) {
+        checkBatchSize(approvals);
+        Set<Long> bookingIds = approvals.stream()
+                .map(BookingApprovalDto::getBookingId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Booking> bookings = bookingRepository.findByIdIn(bookingIds).stream()
+                .collect(Collectors.toMap(Booking::getId, booking -> booking));
 
-        if (!booking.getItem().getOwnerId().equals(ownerId)) {
-            throw new ForbiddenException("Только владелец может подтверждать бронирование");
+        BookingBatchResultDto[] results = new BookingBatchResultDto[approvals.size()];
+        // Позиции принятых к решению записей по возрастанию ID: в этом порядке блокируются строки бронирований
+        Map<Long, Integer> positions = new TreeMap<>();
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < approvals.size(); i++) {
+            BookingApprovalDto approval = approvals.get(i);
+            try {
+                if (approval.getApproved() == null) {
+                    throw new IllegalArgumentException("Не указано решение по бронированию");
+                }
+                if (!seen.add(approval.getBookingId())) {
+                    throw new IllegalArgumentException("Бронирование " + approval.getBookingId() + " указано в пакете повторно");
+                }
+                Booking booking = bookings.get(approval.getBookingId());
+                if (booking == null) {
+                    throw new NoSuchElementException("Бронирование с ID " + approval.getBookingId() + " не найдено");
+                }
+                checkOwner(booking, ownerId);
+                if (booking.getStatus() != BookingStatus.WAITING) {
+                    throw alreadyDecided(booking);
+                }
+                positions.put(booking.getId(), i);
+            } catch (NoSuchElementException | IllegalArgumentException | ForbiddenException | ConflictException e) {
+                results[i] = failed(i, e);
+            }
         }
 
-        if (!booking.getStatus().equals(BookingStatus.WAITING)) {
-            throw new IllegalArgumentException("Бронирование уже имеет статус " + booking.getStatus());
+        // Каждая запись решается условным UPDATE: проигравшая параллельному решению получает 409, остальные применяются
+        List<Long> decidedIds = new ArrayList<>();
+        positions.forEach((bookingId, i) -> {
+            BookingStatus status = approvals.get(i).getApproved() ? BookingStatus.APPROVED : BookingStatus.REJECTED;
+            if (bookingRepository.decideIfWaiting(bookingId, ownerId, status) == 0) {
+                results[i] = failed(i, decidedConcurrently(bookingId));
+            } else {
+                decidedIds.add(bookingId);
+            }
+        });
+        if (decidedIds.isEmpty()) {
+            return Arrays.asList(results);
         }
 
-        if (approved) {
-            booking.setStatus(BookingStatus.APPROVED);
-        } else {
-            booking.setStatus(BookingStatus.REJECTED);
+        // Строки заблокированы до коммита, поэтому перечитанные статусы и фазы не изменятся до пересчёта счётчиков
+        List<Booking> decided = bookingRepository.findByIdIn(decidedIds);
+        List<Booking> approved = new ArrayList<>();
+        for (Booking booking : decided) {
+            if (booking.getStatus() == BookingStatus.APPROVED) {
+                approved.add(booking);
+            } else {
+                bookingMetrics.rejectedByOwner();
+                overlapGuard.releaseAfterCommit(booking);
+            }
+            int i = positions.get(booking.getId());
+            results[i] = BookingBatchResultDto.ok(i, HttpStatus.OK.value(), BookingMapper.toResponseDto(booking));
         }
-
-        Booking updatedBooking = bookingRepository.save(booking);
-        return BookingMapper.toResponseDto(updatedBooking);
+        countersService.onDecided(decided);
+        bookingEvents.onDecided(decided);
+        if (!approved.isEmpty()) {
+            pointersService.onApproved(approved);
+        }
+        return Arrays.asList(results);
     }
 
     @Override
     public BookingResponseDto getBookingById(Long bookingId, Long userId) {
+        return getTaggedBooking(bookingId, userId).body();
+    }
+
+    /**
+     * Бронирование и его ETag по одной загрузке: статус меняет версию бронирования, поля вещи — версию вещи,
+     * имя и email арендатора — его версию.
+     */
+    @Override
+    public Tagged<BookingResponseDto> getTaggedBooking(Long bookingId, Long userId) {
         Booking booking = findBookingById(bookingId);
 
         if (!booking.getBooker().getId().equals(userId) && !booking.getItem().getOwnerId().equals(userId)) {
             throw new NoSuchElementException("Пользователь не является ни автором бронирования, ни владельцем вещи");
         }
-        return BookingMapper.toResponseDto(booking);
+        String etag = EntityTags.of("booking", bookingId, booking.getVersion(), booking.getItem().getVersion(),
+                booking.getBooker().getVersion());
+        return new Tagged<>(etag, BookingMapper.toResponseDto(booking));
     }
 
     @Override
-    public List<BookingResponseDto> getUserBookings(String state, Long userId, Integer from, Integer size) {
+    public List<BookingResponseDto> getUserBookings(String state, Long userId, Integer from, Integer size, String cursor) {
         getUserById(userId);
+        BookingState bookingState = BookingState.parse(state);
+
+        if (cursor != null) {
+            return findAfter(BookingSpecifications.bookedBy(userId), bookingState, cursor, size);
+        }
 
-        Pageable pageable = PageRequest.of(from / size, size);
-        LocalDateTime now = LocalDateTime.now();
+        Pageable pageable = FromSizeRequest.of(from, size, TIE_BREAK);
         List<Booking> bookings;
 
-        try {
-            switch (BookingState.valueOf(state)) {
-                case ALL:
-                    bookings = bookingRepository.findByBookerIdOrderByStartDesc(userId, pageable);
-                    break;
-                case CURRENT:
-                    bookings = bookingRepository.findByBookerIdAndStartBeforeAndEndAfterOrderByStartDesc(userId, now, now, pageable);
-                    break;
-                case PAST:
-                    bookings = bookingRepository.findByBookerIdAndEndBeforeOrderByStartDesc(userId, now, pageable);
-                    break;
-                case FUTURE:
-                    bookings = bookingRepository.findByBookerIdAndStartAfterOrderByStartDesc(userId, now, pageable);
-                    break;
-                case WAITING:
-                    bookings = bookingRepository.findByBookerIdAndStatusOrderByStartDesc(userId, BookingStatus.WAITING, pageable);
-                    break;
-                case REJECTED:
-                    bookings = bookingRepository.findByBookerIdAndStatusOrderByStartDesc(userId, BookingStatus.REJECTED, pageable);
-                    break;
-                default:
-                    throw new IllegalArgumentException("Unknown state: " + state);
-            }
-        } catch (IllegalArgumentException e) {
-            throw new IllegalArgumentException("Unknown state: " + state);
+        switch (bookingState) {
+            case ALL:
+                bookings = bookingRepository.findByBookerIdOrderByStartDesc(userId, pageable);
+                break;
+            case CURRENT:
+                bookings = bookingRepository.findByBookerIdAndPhaseOrderByStartDesc(userId, BookingPhase.CURRENT, pageable);
+                break;
+            case PAST:
+                bookings = bookingRepository.findByBookerIdAndPhaseOrderByStartDesc(userId, BookingPhase.PAST, pageable);
+                break;
+            case FUTURE:
+                bookings = bookingRepository.findByBookerIdAndPhaseOrderByStartDesc(userId, BookingPhase.FUTURE, pageable);
+                break;
+            case WAITING:
+                bookings = bookingRepository.findByBookerIdAndStatusOrderByStartDesc(userId, BookingStatus.WAITING, pageable);
+                break;
+            case REJECTED:
+                bookings = bookingRepository.findByBookerIdAndStatusOrderByStartDesc(userId, BookingStatus.REJECTED, pageable);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown state: " + state);
         }
         return BookingMapper.toResponseDto(bookings);
     }
 
     @Override
-    public List<BookingResponseDto> getOwnerBookings(String state, Long ownerId, Integer from, Integer size) {
+    public List<BookingResponseDto> getOwnerBookings(String state, Long ownerId, Integer from, Integer size, String cursor) {
         getUserById(ownerId);
+        BookingState bookingState = BookingState.parse(state);
 
-        Pageable pageable = PageRequest.of(from / size, size);
-        LocalDateTime now = LocalDateTime.now();
+        if (cursor != null) {
+            return findAfter(BookingSpecifications.ownedBy(ownerId), bookingState, cursor, size);
+        }
+
+        Pageable pageable = FromSizeRequest.of(from, size, TIE_BREAK);
         List<Booking> bookings;
 
-        try {
-            switch (BookingState.valueOf(state)) {
-                case ALL:
-                    bookings = bookingRepository.findByItem_OwnerIdOrderByStartDesc(ownerId, pageable);
-                    break;
-                case CURRENT:
-                    bookings = bookingRepository.findByItem_OwnerIdAndStartBeforeAndEndAfterOrderByStartDesc(ownerId, now, now, pageable);
-                    break;
-                case PAST:
-                    bookings = bookingRepository.findByItem_OwnerIdAndEndBeforeOrderByStartDesc(ownerId, now, pageable);
-                    break;
-                case FUTURE:
-                    bookings = bookingRepository.findByItem_OwnerIdAndStartAfterOrderByStartDesc(ownerId, now, pageable);
-                    break;
-                case WAITING:
-                    bookings = bookingRepository.findByItem_OwnerIdAndStatusOrderByStartDesc(ownerId, BookingStatus.WAITING, pageable);
-                    break;
-                case REJECTED:
-                    bookings = bookingRepository.findByItem_OwnerIdAndStatusOrderByStartDesc(ownerId, BookingStatus.REJECTED, pageable);
-                    break;
-                default:
-                    throw new IllegalArgumentException("Unknown state: " + state);
-            }
-        } catch (IllegalArgumentException e) {
-            throw new IllegalArgumentException("Unknown state: " + state);
+        switch (bookingState) {
+            case ALL:
+                bookings = bookingRepository.findByOwnerIdOrderByStartDesc(ownerId, pageable);
+                break;
+            case CURRENT:
+                bookings = bookingRepository.findByOwnerIdAndPhaseOrderByStartDesc(ownerId, BookingPhase.CURRENT, pageable);
+                break;
+            case PAST:
+                bookings = bookingRepository.findByOwnerIdAndPhaseOrderByStartDesc(ownerId, BookingPhase.PAST, pageable);
+                break;
+            case FUTURE:
+                bookings = bookingRepository.findByOwnerIdAndPhaseOrderByStartDesc(ownerId, BookingPhase.FUTURE, pageable);
+                break;
+            case WAITING:
+                bookings = bookingRepository.findByOwnerIdAndStatusOrderByStartDesc(ownerId, BookingStatus.WAITING, pageable);
+                break;
+            case REJECTED:
+                bookings = bookingRepository.findByOwnerIdAndStatusOrderByStartDesc(ownerId, BookingStatus.REJECTED, pageable);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown state: " + state);
+        }
+        return BookingMapper.toResponseDto(bookings);
+    }
+
+    @Override
+    public Map<BookingState, Long> getUserBookingSummary(Long userId) {
+        getUserById(userId);
+        return countersService.summary(userId, BookingCounters.Role.BOOKER);
+    }
+
+    @Override
+    public Map<BookingState, Long> getOwnerBookingSummary(Long ownerId) {
+        getUserById(ownerId);
+        return countersService.summary(ownerId, BookingCounters.Role.OWNER);
+    }
+
+    // Пользователь и state проверяются сразу, до начала ответа, а строки читает BookingExporter в своей транзакции
+    @Override
+    public BookingExport exportUserBookings(String state, Long userId) {
+        getUserById(userId);
+        Specification<Booking> spec = BookingSpecifications.bookedBy(userId)
+                .and(BookingSpecifications.inState(BookingState.parse(state)));
+        return action -> bookingExporter.export(spec, action);
+    }
+
+    @Override
+    public BookingExport exportOwnerBookings(String state, Long ownerId) {
+        getUserById(ownerId);
+        Specification<Booking> spec = BookingSpecifications.ownedBy(ownerId)
+                .and(BookingSpecifications.inState(BookingState.parse(state)));
+        return action -> bookingExporter.export(spec, action);
+    }
+
+    // Чтение по курсору: условие (start, id) < курсора вместо OFFSET, поэтому глубина страницы не влияет на стоимость
+    private List<BookingResponseDto> findAfter(Specification<Booking> scope, BookingState state, String cursor, Integer size) {
+        if (size == null || size <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры пагинации");
+        }
+        Specification<Booking> spec = scope.and(BookingSpecifications.inState(state));
+        if (!cursor.isBlank()) {
+            spec = spec.and(BookingSpecifications.after(BookingCursor.decode(cursor)));
         }
+        List<Booking> bookings = bookingRepository.findBy(spec,
+                query -> query.sortBy(BookingSpecifications.SEEK_ORDER)
+                        .project("item", "booker")
+                        .limit(size)
+                        .all());
         return BookingMapper.toResponseDto(bookings);
     }
 
+    private void validateNewBooking(BookingCreateDto bookingCreateDto, Long bookerId, Item item) {
+        if (item.getOwnerId().equals(bookerId)) {
+            throw new NoSuchElementException("Владелец не может бронировать свою вещь");
+        }
+
+        if (!item.getAvailable()) {
+            throw new IllegalArgumentException("Вещь недоступна для бронирования");
+        }
+
+        if (bookingCreateDto.getStart() == null || bookingCreateDto.getEnd() == null) {
+            throw new IllegalArgumentException("Даты начала и окончания бронирования должны быть указаны");
+        }
+
+        if (bookingCreateDto.getStart().isAfter(bookingCreateDto.getEnd()) ||
+            bookingCreateDto.getStart().isEqual(bookingCreateDto.getEnd())) {
+            throw new IllegalArgumentException("Дата начала бронирования не может быть позже или равна дате окончания");
+        }
+    }
+
+    private static Booking newBooking(BookingCreateDto bookingCreateDto, Item item, User booker) {
+        Booking booking = BookingMapper.toBooking(bookingCreateDto, booker.getId());
+        booking.setItem(item);
+        booking.setBooker(booker);
+        booking.setStatus(BookingStatus.WAITING);
+        return booking;
+    }
+
+    private void checkOwner(Booking booking, Long ownerId) {
+        if (!booking.getItem().getOwnerId().equals(ownerId)) {
+            throw new ForbiddenException("Только владелец может подтверждать бронирование");
+        }
+    }
+
+    private static ConflictException alreadyDecided(Booking booking) {
+        return new ConflictException("Бронирование " + booking.getId() + " уже имеет статус " + booking.getStatus());
+    }
+
+    private static ConflictException decidedConcurrently(Long bookingId) {
+        return new ConflictException("Бронирование " + bookingId + " изменено параллельным запросом");
+    }
+
+    private void checkBatchSize(List<?> batch) {
+        if (batch == null || batch.isEmpty() || batch.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Пакет должен содержать от 1 до " + MAX_BATCH_SIZE + " записей");
+        }
+    }
+
+    private BookingBatchResultDto rejected(int index, RuntimeException e) {
+        bookingMetrics.rejected(e);
+        return failed(index, e);
+    }
+
+    private static BookingBatchResultDto failed(int index, RuntimeException e) {
+        return BookingBatchResultDto.failed(index, GlobalExceptionHandler.statusOf(e).value(), e.getMessage());
+    }
+
     private User getUserById(Long userId) {
-        return userRepository.findById(userId)
+        return userCache.get(userId)
                 .orElseThrow(() -> new NoSuchElementException("Пользователь с ID " + userId + " не найден"));
     }
 
     private Item getItemById(Long itemId) {
-        return itemRepository.findById(itemId)
+        return itemCache.get(itemId)
                 .orElseThrow(() -> new NoSuchElementException("Вещь с ID " + itemId + " не найдена"));
     }
 
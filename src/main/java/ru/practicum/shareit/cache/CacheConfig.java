@@ -0,0 +1,36 @@
+package ru.practicum.shareit.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemRepository;
+import ru.practicum.shareit.item.service.ItemSearchCache;
+import ru.practicum.shareit.item.service.ItemSearchCacheProperties;
+import ru.practicum.shareit.item.service.ItemSearchIndex;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+@Configuration
+@EnableConfigurationProperties({EntityCacheProperties.class, ItemSearchCacheProperties.class})
+public class CacheConfig {
+
+    @Bean
+    public EntityCache<User> userCache(UserRepository userRepository, EntityCacheProperties properties,
+                                       MeterRegistry meterRegistry) {
+        return new EntityCache<>("users", userRepository::findById, properties, meterRegistry);
+    }
+
+    @Bean
+    public EntityCache<Item> itemCache(ItemRepository itemRepository, EntityCacheProperties properties,
+                                       MeterRegistry meterRegistry) {
+        return new EntityCache<>("items", itemRepository::findById, properties, meterRegistry);
+    }
+
+    @Bean
+    public ItemSearchCache itemSearchCache(ItemSearchIndex searchIndex, ItemSearchCacheProperties properties,
+                                           MeterRegistry meterRegistry) {
+        return new ItemSearchCache(searchIndex, properties, meterRegistry);
+    }
+}
@@ -0,0 +1,68 @@
+package ru.practicum.shareit.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.common.TransactionCallbacks;
+import ru.practicum.shareit.replica.ReplicaRouting;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Ограниченный по размеру и времени жизни read-through кэш сущностей по id.
+ * Отдаёт общие экземпляры, поэтому изменять их нельзя: для правки сущность читается из репозитория.
+ * Заполняется только чтениями с основной базы: отставшая реплика вернула бы строку, которая уже
+ * сброшена после записи, и она отдавалась бы всем до истечения TTL. Значение, загруженное изменяющей
+ * транзакцией, сбрасывается при её откате.
+ */
+public class EntityCache<V> {
+
+    private final Cache<Long, V> cache;
+    private final Function<Long, Optional<V>> loader;
+
+    public EntityCache(String name, Function<Long, Optional<V>> loader, EntityCacheProperties properties,
+                       MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        this.loader = loader;
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+    }
+
+    public Optional<V> get(Long id) {
+        if (ReplicaRouting.readsReplica()) {
+            V cached = cache.getIfPresent(id);
+            return cached != null ? Optional.of(cached) : loader.apply(id);
+        }
+        // Отсутствующие записи не кэшируются: иначе только что созданная сущность была бы «не найдена» до истечения TTL
+        return Optional.ofNullable(cache.get(id, this::load));
+    }
+
+    /**
+     * Сбрасывает запись сразу и ещё раз после коммита текущей транзакции. Инвалидация ключа в Caffeine
+     * дожидается идущей загрузки, поэтому значение, прочитанное до коммита, не переживёт второй сброс.
+     */
+    public void evict(Long id) {
+        cache.invalidate(id);
+        TransactionCallbacks.afterCommit(() -> cache.invalidate(id));
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    private V load(Long id) {
+        V value = loader.apply(id).orElse(null);
+        if (value != null && TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            // Изменяющая транзакция могла прочитать собственную незакоммиченную запись: при откате она сбрасывается
+            TransactionCallbacks.afterRollback(() -> cache.invalidate(id));
+        }
+        return value;
+    }
+}
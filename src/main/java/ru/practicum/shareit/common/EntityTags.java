@@ -0,0 +1,20 @@
+package ru.practicum.shareit.common;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Сильные ETag из идентификаторов и версий сущностей, из которых собран ответ. Метка строится без
+ * сериализации тела, поэтому её можно сравнить с If-None-Match до основных запросов чтения.
+ */
+public final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    public static String of(Object... parts) {
+        return Arrays.stream(parts)
+                .map(String::valueOf)
+                .collect(Collectors.joining("-", "\"", "\""));
+    }
+}
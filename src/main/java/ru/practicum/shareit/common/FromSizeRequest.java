@@ -0,0 +1,79 @@
+package ru.practicum.shareit.common;
+
+import lombok.EqualsAndHashCode;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Pageable со смещением from из параметров запроса: в отличие от PageRequest.of(from / size, size)
+ * не округляет смещение до границы страницы, когда from не кратно size.
+ */
+@EqualsAndHashCode
+public class FromSizeRequest implements Pageable {
+
+    private final long from;
+    private final int size;
+    private final Sort sort;
+
+    private FromSizeRequest(long from, int size, Sort sort) {
+        this.from = from;
+        this.size = size;
+        this.sort = sort;
+    }
+
+    public static FromSizeRequest of(Integer from, Integer size, Sort sort) {
+        if (from == null || size == null || from < 0 || size <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры пагинации");
+        }
+        return new FromSizeRequest(from, size, sort);
+    }
+
+    public static FromSizeRequest of(Integer from, Integer size) {
+        return of(from, size, Sort.unsorted());
+    }
+
+    @Override
+    public int getPageNumber() {
+        return (int) (from / size);
+    }
+
+    @Override
+    public int getPageSize() {
+        return size;
+    }
+
+    @Override
+    public long getOffset() {
+        return from;
+    }
+
+    @Override
+    public Sort getSort() {
+        return sort;
+    }
+
+    @Override
+    public Pageable next() {
+        return new FromSizeRequest(from + size, size, sort);
+    }
+
+    @Override
+    public Pageable previousOrFirst() {
+        return hasPrevious() ? new FromSizeRequest(from - size, size, sort) : first();
+    }
+
+    @Override
+    public Pageable first() {
+        return new FromSizeRequest(0, size, sort);
+    }
+
+    @Override
+    public Pageable withPage(int pageNumber) {
+        return new FromSizeRequest((long) pageNumber * size, size, sort);
+    }
+
+    @Override
+    public boolean hasPrevious() {
+        return from >= size;
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.shareit.common;
+
+/**
+ * Ответ вместе с ETag, посчитанным по версиям тех же загруженных сущностей.
+ */
+public record Tagged<T>(String etag, T body) {
+}
@@ -0,0 +1,147 @@
+package ru.practicum.shareit.concurrency;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ограничивает число одновременно выданных соединений с БД. Каждое соединение держит разрешение
+ * семафора до закрытия; если разрешения нет дольше {@code acquireTimeout}, запрос получает отказ,
+ * а не встаёт в бесконечную очередь за пулом. Нужен при виртуальных потоках, которых может быть
+ * сколько угодно больше, чем соединений. Закрытие передаётся пулу: ограничитель подменяет бин DataSource,
+ * и без этого контекст при остановке не закрыл бы пул.
+ */
+public class DatabaseBulkhead extends DelegatingDataSource implements Closeable {
+
+    // Размер пула Hikari по умолчанию; до старта пула getMaximumPoolSize() возвращает -1
+    static final int DEFAULT_POOL_SIZE = 10;
+
+    private final Semaphore permits;
+    private final int maxPermits;
+    private final long acquireTimeoutNanos;
+
+    public DatabaseBulkhead(DataSource target, int maxPermits, Duration acquireTimeout) {
+        super(target);
+        this.permits = new Semaphore(maxPermits, true);
+        this.maxPermits = maxPermits;
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+    }
+
+    /**
+     * Ограничитель пула Hikari: при {@code permits <= 0} разрешений столько же, сколько соединений в пуле.
+     */
+    public static DatabaseBulkhead ofPool(HikariDataSource pool, int permits, Duration acquireTimeout) {
+        if (permits <= 0) {
+            permits = pool.getMaximumPoolSize();
+        }
+        if (permits <= 0) {
+            permits = DEFAULT_POOL_SIZE;
+        }
+        return new DatabaseBulkhead(pool, permits, acquireTimeout);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public int getMaxPermits() {
+        return maxPermits;
+    }
+
+    public int getInUse() {
+        return maxPermits - permits.availablePermits();
+    }
+
+    public int getWaiting() {
+        return permits.getQueueLength();
+    }
+
+    public void bindTo(MeterRegistry meterRegistry) {
+        bindTo(meterRegistry, "primary");
+    }
+
+    public void bindTo(MeterRegistry meterRegistry, String pool) {
+        Gauge.builder("shareit.db.bulkhead.permits", this, DatabaseBulkhead::getMaxPermits)
+                .description("Разрешения ограничителя")
+                .tag("pool", pool)
+                .register(meterRegistry);
+        Gauge.builder("shareit.db.bulkhead.in-use", this, DatabaseBulkhead::getInUse)
+                .description("Соединения, выданные через ограничитель")
+                .tag("pool", pool)
+                .register(meterRegistry);
+        Gauge.builder("shareit.db.bulkhead.waiting", this, DatabaseBulkhead::getWaiting)
+                .description("Потоки, ожидающие соединения")
+                .tag("pool", pool)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (getTargetDataSource() instanceof Closeable pool) {
+            pool.close();
+        }
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientConnectionException("Нет свободного соединения с базой данных");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Ожидание соединения с базой данных прервано", e);
+        }
+    }
+
+    private Connection releasingOnClose(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                        try {
+                            connection.close();
+                        } finally {
+                            permits.release();
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
@@ -0,0 +1,48 @@
+package ru.practicum.shareit.concurrency;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Оборачивает пул соединений Hikari ограничителем {@link DatabaseBulkhead}. Включается свойством
+ * {@code shareit.db-bulkhead.enabled}, которое по умолчанию следует за {@code spring.threads.virtual.enabled}.
+ * При чтении с реплик DataSource приложения — маршрутизатор, а не пул: ограничители на основной пул
+ * и пулы реплик ставит {@code ReplicaRoutingConfig}, каждому по его размеру.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "shareit.db-bulkhead", name = "enabled", havingValue = "true")
+public class DatabaseBulkheadConfig {
+
+    // Статический, чтобы пост-процессор создавался раньше остальных бинов конфигурации
+    @Bean
+    public static BeanPostProcessor databaseBulkheadPostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource pool)) {
+                    return bean;
+                }
+                DatabaseBulkheadProperties properties = Binder.get(environment)
+                        .bindOrCreate("shareit.db-bulkhead", DatabaseBulkheadProperties.class);
+                return DatabaseBulkhead.ofPool(pool, properties.getPermits(), properties.getAcquireTimeout());
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder databaseBulkheadMetrics(DataSource dataSource) {
+        return meterRegistry -> {
+            if (dataSource instanceof DatabaseBulkhead bulkhead) {
+                bulkhead.bindTo(meterRegistry);
+            }
+        };
+    }
+}
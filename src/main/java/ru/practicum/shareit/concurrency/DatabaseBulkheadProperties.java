@@ -0,0 +1,15 @@
+package ru.practicum.shareit.concurrency;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "shareit.db-bulkhead")
+public class DatabaseBulkheadProperties {
+    private boolean enabled;
+    // 0 — по размеру пула соединений
+    private int permits;
+    private Duration acquireTimeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,97 @@
+package ru.practicum.shareit.db.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Исключающее ограничение: активные (WAITING/APPROVED) бронирования одной вещи не пересекаются по периоду
+ * [start_date, end_date). Ловит пересечения, которые создали разные экземпляры приложения, каждый со своими
+ * деревьями в BookingOverlapGuard. Есть только в PostgreSQL; в H2 исключающих ограничений нет.
+ * До этой миграции пересечения ничем не запрещались, поэтому сначала разрешаются уже существующие — во всех базах.
+ */
+@Slf4j
+public class V11__Booking_overlap_constraint extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        rejectOverlappingWaiting(connection);
+        if (!"PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            // Равенство по item_id в GiST-индексе требует btree_gist
+            statement.execute("create extension if not exists btree_gist");
+            statement.execute("alter table bookings add constraint bookings_no_overlap exclude using gist "
+                    + "(item_id with =, tsrange(start_date, end_date) with &&) "
+                    + "where (status in ('WAITING', 'APPROVED'))");
+        }
+    }
+
+    // Ожидающее бронирование, пересекающееся с подтверждённым или с более ранним ожидающим, отклоняется.
+    // Пересечение двух подтверждённых само не разрешить: миграция останавливается со списком их id
+    private void rejectOverlappingWaiting(Connection connection) throws SQLException {
+        List<Long> rejected = new ArrayList<>();
+        List<String> conflicts = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("select id, item_id, start_date, end_date, status from bookings "
+                     + "where status in ('WAITING', 'APPROVED') "
+                     + "order by item_id, case when status = 'APPROVED' then 0 else 1 end, start_date, id")) {
+            Long itemId = null;
+            // Оставленные бронирования вещи по началу; они не пересекаются, поэтому достаточно проверить
+            // ближайшее, начавшееся раньше конца проверяемого
+            TreeMap<LocalDateTime, Kept> kept = new TreeMap<>();
+            while (rs.next()) {
+                long id = rs.getLong("id");
+                long item = rs.getLong("item_id");
+                LocalDateTime start = rs.getTimestamp("start_date").toLocalDateTime();
+                LocalDateTime end = rs.getTimestamp("end_date").toLocalDateTime();
+                if (!Objects.equals(itemId, item)) {
+                    itemId = item;
+                    kept.clear();
+                }
+                Map.Entry<LocalDateTime, Kept> before = kept.lowerEntry(end);
+                if (before == null || !before.getValue().end().isAfter(start)) {
+                    kept.put(start, new Kept(id, end));
+                } else if ("WAITING".equals(rs.getString("status"))) {
+                    rejected.add(id);
+                } else {
+                    conflicts.add(before.getValue().id() + " и " + id);
+                }
+            }
+        }
+        if (!conflicts.isEmpty()) {
+            throw new IllegalStateException("Подтверждённые бронирования одной вещи пересекаются, "
+                    + "разрешите пересечения вручную: " + String.join(", ", conflicts));
+        }
+        if (rejected.isEmpty()) {
+            return;
+        }
+        // Счётчики бронирований пересчитает сверка при старте приложения
+        try (PreparedStatement statement = connection.prepareStatement(
+                "update bookings set status = 'REJECTED', version = version + 1 where id = ?")) {
+            for (Long id : rejected) {
+                statement.setLong(1, id);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        log.warn("Отклонены ожидающие бронирования, пересекающиеся с другими: {}", rejected);
+    }
+
+    private record Kept(long id, LocalDateTime end) {
+    }
+}
@@ -0,0 +1,36 @@
+package ru.practicum.shareit.db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Последовательности для пакетной выдачи id (pooled-lo, шаг {@value #ALLOCATION_SIZE}).
+ * Каждая начинается после максимального существующего id таблицы, поэтому старые id сохраняются.
+ * Миграция на Java, потому что начальное значение вычисляется, а синтаксис для этого в H2 и PostgreSQL разный.
+ */
+public class V2__Pooled_id_sequences extends BaseJavaMigration {
+
+    // Должен совпадать с allocationSize в @SequenceGenerator сущностей
+    static final int ALLOCATION_SIZE = 50;
+
+    private static final String[] TABLES = {"users", "items", "bookings", "comments"};
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        try (Statement statement = context.getConnection().createStatement()) {
+            for (String table : TABLES) {
+                long start;
+                try (ResultSet rs = statement.executeQuery("select coalesce(max(id), 0) + 1 from " + table)) {
+                    rs.next();
+                    start = rs.getLong(1);
+                }
+                statement.execute("create sequence " + table + "_seq start with " + start
+                        + " increment by " + ALLOCATION_SIZE);
+            }
+        }
+    }
+}
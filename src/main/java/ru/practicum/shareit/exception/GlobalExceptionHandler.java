@@ -1,7 +1,10 @@
 package ru.practicum.shareit.exception;
 
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -34,6 +37,14 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
     }
 
+    // Версия строки сменилась между чтением и записью: клиенту стоит перечитать ресурс и повторить
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleOptimisticLockException(OptimisticLockingFailureException e) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Данные изменены параллельным запросом, повторите запрос");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
     @ExceptionHandler(ForbiddenException.class)
     public ResponseEntity<Map<String, String>> handleForbiddenException(ForbiddenException e) {
         Map<String, String> error = new HashMap<>();
@@ -41,6 +52,14 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
     }
 
+    // Нет свободного соединения с БД: ограничитель или пул исчерпаны, клиенту стоит повторить запрос
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<Map<String, String>> handleUnavailableException(Exception e) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "База данных перегружена, повторите запрос позже");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, String>> handleValidationException(MethodArgumentNotValidException e) {
         Map<String, String> error = new HashMap<>();
@@ -48,6 +67,25 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
 
+    /**
+     * Статус, с которым обработчики выше отвечают на исключение; используется для записей пакетных запросов.
+     */
+    public static HttpStatus statusOf(RuntimeException e) {
+        if (e instanceof NoSuchElementException) {
+            return HttpStatus.NOT_FOUND;
+        }
+        if (e instanceof IllegalArgumentException) {
+            return HttpStatus.BAD_REQUEST;
+        }
+        if (e instanceof ConflictException || e instanceof OptimisticLockingFailureException) {
+            return HttpStatus.CONFLICT;
+        }
+        if (e instanceof ForbiddenException) {
+            return HttpStatus.FORBIDDEN;
+        }
+        return HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, String>> handleGenericException(Exception e) {
         Map<String, String> error = new HashMap<>();
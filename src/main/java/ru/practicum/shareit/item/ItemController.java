@@ -2,8 +2,11 @@ package ru.practicum.shareit.item;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.practicum.shareit.item.dto.CommentCreateDto;
+import ru.practicum.shareit.item.dto.CommentCursor;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemWithBookingsDto;
@@ -16,6 +19,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ItemController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final ItemService itemService;
 
     @PostMapping
@@ -33,7 +38,13 @@ public class ItemController {
 
     @GetMapping("/{itemId}")
     public ItemWithBookingsDto getItemById(@PathVariable Long itemId,
-                                           @RequestHeader("X-Sharer-User-Id") Long userId) {
+                                           @RequestHeader("X-Sharer-User-Id") Long userId,
+                                           WebRequest request) {
+        // Метка считается до чтения: изменение между ними даст клиенту более новое тело со старой меткой,
+        // и следующий опрос просто получит его заново, а не 304 на устаревшее тело
+        if (request.checkNotModified(itemService.getItemTag(itemId, userId))) {
+            return null;
+        }
         return itemService.getItemById(itemId, userId);
     }
 
@@ -43,8 +54,22 @@ public class ItemController {
     }
 
     @GetMapping("/search")
-    public List<ItemDto> searchItems(@RequestParam String text) {
-        return itemService.searchItems(text);
+    public List<ItemDto> searchItems(@RequestParam String text,
+                                     @RequestParam(defaultValue = "0") Integer from,
+                                     @RequestParam(required = false) Integer size) {
+        return itemService.searchItems(text, from, size);
+    }
+
+    @GetMapping("/{itemId}/comments")
+    public ResponseEntity<List<CommentDto>> getComments(@PathVariable Long itemId,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(defaultValue = "20") Integer size) {
+        List<CommentDto> comments = itemService.getComments(itemId, cursor, size);
+        if (comments.isEmpty() || comments.size() < size) {
+            return ResponseEntity.ok(comments);
+        }
+        String next = CommentCursor.after(comments.get(comments.size() - 1)).encode();
+        return ResponseEntity.ok().header(NEXT_CURSOR_HEADER, next).body(comments);
     }
 
     @PostMapping("/{itemId}/comment")
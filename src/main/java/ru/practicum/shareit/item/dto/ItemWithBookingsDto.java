@@ -11,6 +11,9 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 public class ItemWithBookingsDto {
+    // Сколько последних отзывов отдаётся вместе с вещью; остальные — через GET /items/{itemId}/comments
+    public static final int COMMENTS_PREVIEW = 10;
+
     private Long id;
     private String name;
     private String description;
@@ -18,6 +21,7 @@ public class ItemWithBookingsDto {
     private Long ownerId;
     private BookingInfo lastBooking;
     private BookingInfo nextBooking;
+    private Long commentCount;
     private List<CommentDto> comments;
 
     @Data
@@ -2,8 +2,10 @@ package ru.practicum.shareit.item.mapper;
 
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemWithBookingsDto;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemBookingPointers;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -15,6 +17,7 @@ public class ItemMapper {
         itemDto.setName(item.getName());
         itemDto.setDescription(item.getDescription());
         itemDto.setAvailable(item.getAvailable());
+        itemDto.setRequestId(item.getRequestId());
         return itemDto;
     }
 
@@ -25,9 +28,33 @@ public class ItemMapper {
         item.setDescription(itemDto.getDescription());
         item.setAvailable(itemDto.getAvailable());
         item.setOwnerId(ownerId);
+        item.setRequestId(itemDto.getRequestId());
         return item;
     }
 
+    public static ItemWithBookingsDto toItemWithBookingsDto(Item item, List<Comment> comments) {
+        ItemWithBookingsDto result = new ItemWithBookingsDto();
+        result.setId(item.getId());
+        result.setName(item.getName());
+        result.setDescription(item.getDescription());
+        result.setAvailable(item.getAvailable());
+        result.setOwnerId(item.getOwnerId());
+        result.setCommentCount(item.getCommentCount());
+        result.setComments(toCommentDto(comments));
+        return result;
+    }
+
+    public static void setBookings(ItemWithBookingsDto dto, ItemBookingPointers pointers) {
+        if (pointers.getLastBookingId() != null) {
+            dto.setLastBooking(new ItemWithBookingsDto.BookingInfo(pointers.getLastBookingId(),
+                    pointers.getLastBookerId(), pointers.getLastStart(), pointers.getLastEnd()));
+        }
+        if (pointers.getNextBookingId() != null) {
+            dto.setNextBooking(new ItemWithBookingsDto.BookingInfo(pointers.getNextBookingId(),
+                    pointers.getNextBookerId(), pointers.getNextStart(), pointers.getNextEnd()));
+        }
+    }
+
     public static CommentDto toCommentDto(Comment comment) {
         CommentDto commentDto = new CommentDto();
         commentDto.setId(comment.getId());
@@ -15,7 +15,8 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Comment {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "comments_seq")
+    @SequenceGenerator(name = "comments_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "text", nullable = false)
@@ -31,4 +32,12 @@ public class Comment {
 
     @Column(name = "created", nullable = false)
     private LocalDateTime created;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    public Comment(Long id, String text, Item item, User author, LocalDateTime created) {
+        this(id, text, item, author, created, null);
+    }
 }
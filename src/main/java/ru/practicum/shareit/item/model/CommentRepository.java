@@ -1,11 +1,35 @@
 package ru.practicum.shareit.item.model;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
-    List<Comment> findByItemIdOrderByCreatedDesc(Long itemId);
+    // Страницы отзывов вещи по индексу (item_id, created desc, id desc), автор подгружается тем же запросом
+    @Query("select c from Comment c join fetch c.author where c.item.id = ?1 order by c.created desc, c.id desc")
+    List<Comment> findPageWithAuthor(Long itemId, Pageable pageable);
+
+    @Query("select c from Comment c join fetch c.author where c.item.id = ?1 " +
+            "and (c.created < ?2 or (c.created = ?2 and c.id < ?3)) order by c.created desc, c.id desc")
+    List<Comment> findPageWithAuthorAfter(Long itemId, LocalDateTime created, Long id, Pageable pageable);
+
+    // Первые страницы сразу для набора вещей: не больше :limit последних отзывов на вещь
+    @Query(value = "select id from (" +
+            "select c.id, row_number() over (partition by c.item_id order by c.created desc, c.id desc) as rn " +
+            "from comments c where c.item_id in (:itemIds)) first_comments where rn <= :limit",
+            nativeQuery = true)
+    List<Long> findFirstPageIds(@Param("itemIds") Collection<Long> itemIds, @Param("limit") int limit);
+
+    @Query("select c from Comment c join fetch c.author where c.id in ?1 order by c.created desc, c.id desc")
+    List<Comment> findByIdInWithAuthor(Collection<Long> ids);
+
+    @Query("select distinct c.item.id from Comment c where c.author.id = ?1")
+    List<Long> findItemIdsByAuthorId(Long authorId);
 }
@@ -13,7 +13,8 @@ import jakarta.persistence.*;
 @AllArgsConstructor
 public class Item {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "items_seq")
+    @SequenceGenerator(name = "items_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "name", nullable = false)
@@ -30,4 +31,16 @@ public class Item {
 
     @Column(name = "request_id")
     private Long requestId; // Для связи с запросами на вещи
+
+    // Меняется только запросом ItemRepository.incrementCommentCount, поэтому JPA его не пишет
+    @Column(name = "comment_count", nullable = false, insertable = false, updatable = false)
+    private Long commentCount;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    public Item(Long id, String name, String description, Boolean available, Long ownerId, Long requestId) {
+        this(id, name, description, available, ownerId, requestId, null, null);
+    }
 }
@@ -0,0 +1,62 @@
+package ru.practicum.shareit.item.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Материализованные последнее и следующее подтверждённые бронирования вещи.
+ * validUntil — ближайший момент, когда указатели устаревают сами по себе:
+ * начало следующего бронирования или окончание текущего.
+ */
+@Entity
+@Table(name = "item_booking_pointers")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemBookingPointers {
+    @Id
+    @Column(name = "item_id")
+    private Long itemId;
+
+    @Column(name = "last_booking_id")
+    private Long lastBookingId;
+
+    @Column(name = "last_booker_id")
+    private Long lastBookerId;
+
+    @Column(name = "last_start")
+    private LocalDateTime lastStart;
+
+    @Column(name = "last_end")
+    private LocalDateTime lastEnd;
+
+    @Column(name = "next_booking_id")
+    private Long nextBookingId;
+
+    @Column(name = "next_booker_id")
+    private Long nextBookerId;
+
+    @Column(name = "next_start")
+    private LocalDateTime nextStart;
+
+    @Column(name = "next_end")
+    private LocalDateTime nextEnd;
+
+    @Column(name = "valid_until")
+    private LocalDateTime validUntil;
+
+    public ItemBookingPointers(Long itemId) {
+        this.itemId = itemId;
+    }
+
+    public boolean isValidAt(LocalDateTime now) {
+        return validUntil == null || validUntil.isAfter(now);
+    }
+}
@@ -0,0 +1,36 @@
+package ru.practicum.shareit.item.model;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ItemBookingPointersRepository extends JpaRepository<ItemBookingPointers, Long> {
+
+    List<ItemBookingPointers> findByValidUntilLessThanEqual(LocalDateTime now, Pageable pageable);
+
+    // Условные обновления: указатель сдвигается, только если новое бронирование ближе к текущему моменту,
+    // поэтому одновременные подтверждения по одной вещи не затирают друг друга
+    @Modifying
+    @Query("update ItemBookingPointers p set p.lastBookingId = ?2, p.lastBookerId = ?3, p.lastStart = ?4, p.lastEnd = ?5 " +
+            "where p.itemId = ?1 and (p.lastEnd is null or p.lastEnd < ?5)")
+    int moveLastIfLater(Long itemId, Long bookingId, Long bookerId, LocalDateTime start, LocalDateTime end);
+
+    // Начало нового следующего бронирования сразу опускает и validUntil: отдельное обновление
+    // нужно, только если раньше закончится текущее бронирование
+    @Modifying
+    @Query("update ItemBookingPointers p set p.nextBookingId = ?2, p.nextBookerId = ?3, p.nextStart = ?4, p.nextEnd = ?5, " +
+            "p.validUntil = case when p.validUntil is null or p.validUntil > ?4 then ?4 else p.validUntil end " +
+            "where p.itemId = ?1 and (p.nextStart is null or p.nextStart > ?4)")
+    int moveNextIfEarlier(Long itemId, Long bookingId, Long bookerId, LocalDateTime start, LocalDateTime end);
+
+    @Modifying
+    @Query("update ItemBookingPointers p set p.validUntil = ?2 " +
+            "where p.itemId = ?1 and (p.validUntil is null or p.validUntil > ?2)")
+    int lowerValidUntil(Long itemId, LocalDateTime validUntil);
+}
@@ -1,11 +1,31 @@
 package ru.practicum.shareit.item.model;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ItemRepository extends JpaRepository<Item, Long> {
     List<Item> findByOwnerId(Long ownerId);
+
+    List<Item> findByAvailableTrue();
+
+    List<Item> findByRequestIdInOrderById(Collection<Long> requestIds);
+
+    @Query("select i.id from Item i where i.id > ?1 order by i.id")
+    List<Long> findIdsAfter(Long id, Pageable pageable);
+
+    // Версия вещи покрывает и её отзывы: отзыв не редактируется, но его появление или смена имени автора меняют ответ
+    @Modifying
+    @Query("update Item i set i.version = i.version + 1 where i.id in ?1")
+    void incrementVersions(Collection<Long> ids);
+
+    @Modifying
+    @Query("update Item i set i.commentCount = i.commentCount + 1, i.version = i.version + 1 where i.id = ?1")
+    void incrementCommentCount(Long id);
 }
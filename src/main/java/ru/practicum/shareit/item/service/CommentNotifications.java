@@ -0,0 +1,39 @@
+package ru.practicum.shareit.item.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.dto.CommentEventDto;
+import ru.practicum.shareit.notification.NotificationBus;
+import ru.practicum.shareit.outbox.OutboxConsumer;
+import ru.practicum.shareit.outbox.OutboxEvent;
+
+/**
+ * Сообщает владельцу вещи о новом отзыве.
+ */
+@Component
+@RequiredArgsConstructor
+public class CommentNotifications implements OutboxConsumer {
+
+    public static final String AGGREGATE = "item";
+    public static final String COMMENT_ADDED = "CommentAdded";
+    public static final String EVENT = "comment";
+
+    private final NotificationBus notificationBus;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public String aggregateType() {
+        return AGGREGATE;
+    }
+
+    @Override
+    public void accept(OutboxEvent event) throws JsonProcessingException {
+        if (!COMMENT_ADDED.equals(event.getEventType())) {
+            return;
+        }
+        CommentEventDto comment = objectMapper.readValue(event.getPayload(), CommentEventDto.class);
+        notificationBus.publish(comment.getOwnerId(), EVENT, comment);
+    }
+}
@@ -0,0 +1,211 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.item.model.ItemBookingPointers;
+import ru.practicum.shareit.item.model.ItemBookingPointersRepository;
+import ru.practicum.shareit.item.model.ItemRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Ведёт указатели на последнее и следующее подтверждённые бронирования каждой вещи:
+ * сдвигает их при подтверждении, перекатывает по времени и умеет пересобрать из таблицы bookings.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class ItemBookingPointersService {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final ItemBookingPointersRepository pointersRepository;
+    private final BookingRepository bookingRepository;
+    private final ItemRepository itemRepository;
+
+    @Transactional
+    public void initialize(Long itemId) {
+        pointersRepository.save(new ItemBookingPointers(itemId));
+    }
+
+    @Transactional
+    public void onApproved(Booking booking) {
+        onApproved(List.of(booking));
+    }
+
+    /**
+     * Сдвигает указатели после подтверждения набора бронирований: по каждой вещи выбираются ближайшие
+     * к текущему моменту кандидаты, так что на вещь приходится не больше трёх условных обновлений,
+     * а при подтверждении одного бронирования — одно.
+     */
+    @Transactional
+    public void onApproved(Collection<Booking> bookings) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, List<Booking>> byItem = bookings.stream()
+                .collect(Collectors.groupingBy(booking -> booking.getItem().getId()));
+        Set<Long> stored = pointersRepository.findAllById(byItem.keySet()).stream()
+                .map(ItemBookingPointers::getItemId)
+                .collect(Collectors.toSet());
+        List<Long> missing = byItem.keySet().stream()
+                .filter(itemId -> !stored.contains(itemId))
+                .collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            pointersRepository.saveAll(compute(missing, now).values());
+        }
+        for (Long itemId : stored) {
+            Booking last = null;
+            Booking next = null;
+            LocalDateTime validUntil = null;
+            for (Booking booking : byItem.get(itemId)) {
+                if (booking.getEnd().isBefore(now)) {
+                    if (last == null || booking.getEnd().isAfter(last.getEnd())) {
+                        last = booking;
+                    }
+                    continue;
+                }
+                if (booking.getStart().isAfter(now)) {
+                    if (next == null || booking.getStart().isBefore(next.getStart())) {
+                        next = booking;
+                    }
+                }
+                // Будущее бронирование сдвинет указатели, когда начнётся, текущее — когда закончится
+                LocalDateTime change = booking.getStart().isAfter(now) ? booking.getStart() : booking.getEnd();
+                if (validUntil == null || change.isBefore(validUntil)) {
+                    validUntil = change;
+                }
+            }
+            if (last != null) {
+                pointersRepository.moveLastIfLater(itemId, last.getId(), last.getBooker().getId(),
+                        last.getStart(), last.getEnd());
+            }
+            if (next != null) {
+                pointersRepository.moveNextIfEarlier(itemId, next.getId(), next.getBooker().getId(),
+                        next.getStart(), next.getEnd());
+            }
+            // Если следующий указатель не сдвинулся, сохранённый уже начинается не позже и validUntil не выше него
+            if (validUntil != null && (next == null || validUntil.isBefore(next.getStart()))) {
+                pointersRepository.lowerValidUntil(itemId, validUntil);
+            }
+        }
+    }
+
+    public ItemBookingPointers current(Long itemId) {
+        return current(List.of(itemId)).get(itemId);
+    }
+
+    /**
+     * Указатели для набора вещей: сохранённые, если они ещё действительны, иначе пересчитанные
+     * по таблице bookings без записи — сохранит их плановый перекат.
+     */
+    public Map<Long, ItemBookingPointers> current(Collection<Long> itemIds) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, ItemBookingPointers> result = pointersRepository.findAllById(itemIds).stream()
+                .filter(pointers -> pointers.isValidAt(now))
+                .collect(Collectors.toMap(ItemBookingPointers::getItemId, pointers -> pointers));
+        List<Long> stale = itemIds.stream()
+                .filter(itemId -> !result.containsKey(itemId))
+                .collect(Collectors.toList());
+        if (!stale.isEmpty()) {
+            result.putAll(compute(stale, now));
+        }
+        return result;
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${shareit.booking-pointers.roll-interval:PT1M}")
+    public void rollForward() {
+        LocalDateTime now = LocalDateTime.now();
+        List<ItemBookingPointers> expired;
+        do {
+            expired = pointersRepository.findByValidUntilLessThanEqual(now, PageRequest.of(0, BATCH_SIZE));
+            if (expired.isEmpty()) {
+                break;
+            }
+            List<Long> itemIds = expired.stream()
+                    .map(ItemBookingPointers::getItemId)
+                    .collect(Collectors.toList());
+            pointersRepository.saveAll(compute(itemIds, now).values());
+        } while (expired.size() == BATCH_SIZE);
+    }
+
+    /**
+     * Проверка согласованности: пересчитывает указатели всех вещей по таблице bookings
+     * и исправляет расходящиеся. Возвращает число исправленных вещей.
+     */
+    @Transactional
+    public int rebuildAll() {
+        LocalDateTime now = LocalDateTime.now();
+        int fixed = 0;
+        List<Long> itemIds;
+        Long lastId = 0L;
+        do {
+            itemIds = itemRepository.findIdsAfter(lastId, PageRequest.of(0, BATCH_SIZE));
+            if (itemIds.isEmpty()) {
+                break;
+            }
+            Map<Long, ItemBookingPointers> stored = pointersRepository.findAllById(itemIds).stream()
+                    .collect(Collectors.toMap(ItemBookingPointers::getItemId, pointers -> pointers));
+            for (ItemBookingPointers computed : compute(itemIds, now).values()) {
+                if (!Objects.equals(stored.get(computed.getItemId()), computed)) {
+                    pointersRepository.save(computed);
+                    fixed++;
+                }
+            }
+            lastId = itemIds.get(itemIds.size() - 1);
+        } while (itemIds.size() == BATCH_SIZE);
+        if (fixed > 0) {
+            log.info("Пересобраны указатели бронирований для {} вещей", fixed);
+        }
+        return fixed;
+    }
+
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuildAll();
+    }
+
+    private Map<Long, ItemBookingPointers> compute(Collection<Long> itemIds, LocalDateTime now) {
+        Map<Long, ItemBookingPointers> result = new HashMap<>();
+        itemIds.forEach(itemId -> result.put(itemId, new ItemBookingPointers(itemId)));
+        for (Booking booking : bookingRepository.findLastAndNextApprovedByItemIds(itemIds, now)) {
+            ItemBookingPointers pointers = result.get(booking.getItem().getId());
+            if (booking.getEnd().isBefore(now)) {
+                pointers.setLastBookingId(booking.getId());
+                pointers.setLastBookerId(booking.getBooker().getId());
+                pointers.setLastStart(booking.getStart());
+                pointers.setLastEnd(booking.getEnd());
+            } else {
+                pointers.setNextBookingId(booking.getId());
+                pointers.setNextBookerId(booking.getBooker().getId());
+                pointers.setNextStart(booking.getStart());
+                pointers.setNextEnd(booking.getEnd());
+                pointers.setValidUntil(booking.getStart());
+            }
+        }
+        for (Object[] row : bookingRepository.findEarliestApprovedEndAfterByItemIds(itemIds, now)) {
+            ItemBookingPointers pointers = result.get((Long) row[0]);
+            LocalDateTime earliestEnd = (LocalDateTime) row[1];
+            if (pointers.getValidUntil() == null || earliestEnd.isBefore(pointers.getValidUntil())) {
+                pointers.setValidUntil(earliestEnd);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,92 @@
+package ru.practicum.shareit.item.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Кэш выдачи поиска по нормализованному (приведённому к нижнему регистру) запросу. Хранится полный список
+ * id, страница вырезается из него. Вытеснение — W-TinyLFU Caffeine с ограничением на суммарное число id.
+ * <p>
+ * Изменения вещей не сбрасывают кэш целиком: при чтении запись сверяется с журналом изменений индекса
+ * и перезагружается, только если после её загрузки какая-то вещь вошла в выдачу по этому запросу или выпала из неё.
+ */
+public class ItemSearchCache {
+
+    private final ItemSearchIndex searchIndex;
+    private final AsyncCache<String, Entry> cache;
+
+    public ItemSearchCache(ItemSearchIndex searchIndex, ItemSearchCacheProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.searchIndex = searchIndex;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaximumIds())
+                .weigher((String query, Entry entry) -> Math.max(1, entry.ids.size()))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "item-search");
+    }
+
+    public List<Long> search(String text, int from, int size) {
+        String query = text.toLowerCase();
+        CompletableFuture<Entry> future = get(query);
+        Entry entry = future.join();
+        long generation = searchIndex.generation();
+        if (entry.verified < generation) {
+            if (searchIndex.changedSince(query, entry.verified, generation)) {
+                cache.asMap().remove(query, future);
+                entry = get(query).join();
+            } else {
+                entry.verified = generation;
+            }
+        }
+        return page(entry.ids, from, size);
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    /**
+     * Загрузка идёт в потоке первого промахнувшегося запроса, но вне блокировки внутренней таблицы кэша:
+     * в таблицу сразу кладётся незавершённый future, и одновременные запросы с тем же ключом ждут его,
+     * а не идут в индекс сами.
+     */
+    private CompletableFuture<Entry> get(String query) {
+        CompletableFuture<Entry> created = new CompletableFuture<>();
+        CompletableFuture<Entry> future = cache.get(query, (key, executor) -> created);
+        if (future == created) {
+            try {
+                // Поколение читается до поиска, поэтому запись может оказаться только свежее своей отметки
+                long generation = searchIndex.generation();
+                created.complete(new Entry(List.copyOf(searchIndex.search(query, 0, Integer.MAX_VALUE)), generation));
+            } catch (RuntimeException e) {
+                created.completeExceptionally(e);
+                throw e;
+            }
+        }
+        return future;
+    }
+
+    private static List<Long> page(List<Long> ids, int from, int size) {
+        int start = Math.min(from, ids.size());
+        int end = (int) Math.min(ids.size(), (long) start + size);
+        return ids.subList(start, end);
+    }
+
+    private static final class Entry {
+        private final List<Long> ids;
+        // Поколение индекса, по которое включительно выдача проверена; гонка записей лишь вызовет повторную проверку
+        private volatile long verified;
+
+        private Entry(List<Long> ids, long verified) {
+            this.ids = ids;
+            this.verified = verified;
+        }
+    }
+}
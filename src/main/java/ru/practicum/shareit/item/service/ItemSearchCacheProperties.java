@@ -0,0 +1,11 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "shareit.search-cache")
+public class ItemSearchCacheProperties {
+    // Ограничение на суммарное число id во всех закэшированных выдачах, а не на число запросов
+    private long maximumIds = 1_000_000;
+}
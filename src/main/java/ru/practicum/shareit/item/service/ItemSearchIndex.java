@@ -0,0 +1,285 @@
+package ru.practicum.shareit.item.service;
+
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный триграммный индекс по названию и описанию доступных вещей.
+ * Сохраняет семантику поиска по подстроке без учёта регистра: кандидаты берутся
+ * из пересечения списков триграмм запроса и затем проверяются через contains.
+ * Каждое изменение индекса получает номер поколения и попадает в короткий журнал,
+ * по которому кэш результатов проверяет, затронуло ли оно конкретный запрос.
+ */
+@Component
+public class ItemSearchIndex {
+
+    private static final int GRAM = 3;
+    private static final int CHANGE_LOG_SIZE = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Long, Document> documents = new TreeMap<>();
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private final Change[] changes = new Change[CHANGE_LOG_SIZE];
+    // Пишется только под блокировкой записи, читается без блокировок
+    private volatile long generation;
+
+    public void index(Item item) {
+        lock.writeLock().lock();
+        try {
+            Document previous = removeDocument(item.getId());
+            Document document = null;
+            if (Boolean.TRUE.equals(item.getAvailable())) {
+                document = new Document(item.getName().toLowerCase(), item.getDescription().toLowerCase());
+                documents.put(item.getId(), document);
+                for (long gram : document.grams()) {
+                    postings.computeIfAbsent(gram, g -> new PostingList()).add(item.getId());
+                }
+            }
+            record(previous, document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long itemId) {
+        lock.writeLock().lock();
+        try {
+            record(removeDocument(itemId), null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            postings.clear();
+            appendChange(Change.RESET);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Номер последнего изменения индекса. Поиск, начатый после чтения номера, видит все изменения до него включительно.
+     */
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * Проверяет, могла ли выдача по запросу измениться между поколениями {@code since} и {@code until}.
+     * Изменение, которое не добавило и не убрало вещь из выдачи, запрос не затрагивает. Если журнал
+     * уже не покрывает интервал, ответ консервативный — {@code true}.
+     */
+    public boolean changedSince(String text, long since, long until) {
+        if (until - since > CHANGE_LOG_SIZE) {
+            return true;
+        }
+        String query = text.toLowerCase();
+        lock.readLock().lock();
+        try {
+            for (long g = since + 1; g <= until; g++) {
+                Change change = changes[(int) (g % CHANGE_LOG_SIZE)];
+                if (change == null || change.generation() != g || change.affects(query)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает id подходящих вещей по возрастанию, пропуская первые {@code from}
+     * и не больше {@code size} штук.
+     */
+    public List<Long> search(String text, int from, int size) {
+        String query = text.toLowerCase();
+        List<Long> result = new ArrayList<>(Math.min(size, 64));
+        lock.readLock().lock();
+        try {
+            if (query.length() < GRAM) {
+                // Короткий запрос не даёт ни одной триграммы — идём по документам в порядке id до заполнения страницы
+                int skipped = 0;
+                for (Map.Entry<Long, Document> entry : documents.entrySet()) {
+                    if (result.size() == size) {
+                        break;
+                    }
+                    if (entry.getValue().contains(query) && skipped++ >= from) {
+                        result.add(entry.getKey());
+                    }
+                }
+                return result;
+            }
+
+            PostingList[] lists = queryPostings(query);
+            if (lists == null) {
+                return result;
+            }
+            PostingList smallest = lists[0];
+            int skipped = 0;
+            for (int i = 0; i < smallest.size && result.size() < size; i++) {
+                long id = smallest.ids[i];
+                if (containsInAll(lists, id) && documents.get(id).contains(query) && skipped++ >= from) {
+                    result.add(id);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private PostingList[] queryPostings(String query) {
+        long[] grams = grams(query);
+        PostingList[] lists = new PostingList[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            PostingList list = postings.get(grams[i]);
+            if (list == null) {
+                return null;
+            }
+            lists[i] = list;
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        return lists;
+    }
+
+    private static boolean containsInAll(PostingList[] lists, long id) {
+        for (int i = 1; i < lists.length; i++) {
+            if (!lists[i].contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void record(Document previous, Document current) {
+        if (!Objects.equals(previous, current)) {
+            appendChange(new Change(0, previous, current));
+        }
+    }
+
+    private void appendChange(Change change) {
+        long next = generation + 1;
+        changes[(int) (next % CHANGE_LOG_SIZE)] = new Change(next, change.previous(), change.current());
+        generation = next;
+    }
+
+    private Document removeDocument(Long itemId) {
+        Document previous = documents.remove(itemId);
+        if (previous == null) {
+            return null;
+        }
+        for (long gram : previous.grams()) {
+            PostingList list = postings.get(gram);
+            if (list != null && list.remove(itemId) && list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+        return previous;
+    }
+
+    private static long[] grams(String text) {
+        int count = Math.max(0, text.length() - GRAM + 1);
+        long[] grams = new long[count];
+        for (int i = 0; i < count; i++) {
+            grams[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+        return Arrays.stream(grams).distinct().toArray();
+    }
+
+    private record Document(String name, String description) {
+
+        boolean contains(String query) {
+            return name.contains(query) || description.contains(query);
+        }
+
+        // Триграммы считаются по полям раздельно, чтобы не появлялись граммы на стыке названия и описания
+        long[] grams() {
+            long[] nameGrams = ItemSearchIndex.grams(name);
+            long[] descriptionGrams = ItemSearchIndex.grams(description);
+            long[] all = Arrays.copyOf(nameGrams, nameGrams.length + descriptionGrams.length);
+            System.arraycopy(descriptionGrams, 0, all, nameGrams.length, descriptionGrams.length);
+            return Arrays.stream(all).distinct().toArray();
+        }
+    }
+
+    /**
+     * Документ вещи до и после изменения; {@code null} — вещи в индексе не было или больше нет.
+     * Пара из двух {@code null} означает очистку всего индекса и затрагивает любой запрос.
+     */
+    private record Change(long generation, Document previous, Document current) {
+
+        static final Change RESET = new Change(0, null, null);
+
+        boolean affects(String query) {
+            if (previous == null && current == null) {
+                return true;
+            }
+            return matches(previous, query) != matches(current, query);
+        }
+
+        private static boolean matches(Document document, String query) {
+            return document != null && document.contains(query);
+        }
+    }
+
+    /**
+     * Отсортированный список id без упаковки в Long. Новые вещи получают растущие id,
+     * поэтому вставка почти всегда сводится к добавлению в конец.
+     */
+    private static final class PostingList {
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long id) {
+            int pos = size == 0 || ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                return;
+            }
+            int insertAt = -pos - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+    }
+}
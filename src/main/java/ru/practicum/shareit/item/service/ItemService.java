@@ -11,7 +11,10 @@ public interface ItemService {
     ItemDto createItem(ItemDto itemDto, Long ownerId);
     ItemDto updateItem(Long itemId, ItemDto itemDto, Long ownerId);
     ItemWithBookingsDto getItemById(Long itemId, Long userId);
+    String getItemTag(Long itemId, Long userId);
     List<ItemWithBookingsDto> getItemsByOwner(Long ownerId);
-    List<ItemDto> searchItems(String text);
+    List<ItemDto> searchItems(String text, Integer from, Integer size);
+    List<Long> searchItemIds(String text, Integer from, Integer size);
     CommentDto addComment(Long itemId, CommentCreateDto commentCreateDto, Long userId);
+    List<CommentDto> getComments(Long itemId, String cursor, Integer size);
 }
@@ -1,45 +1,83 @@
 package ru.practicum.shareit.item.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.Booking;
 import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.cache.EntityCache;
+import ru.practicum.shareit.common.EntityTags;
+import ru.practicum.shareit.common.TransactionCallbacks;
 import ru.practicum.shareit.item.dto.CommentCreateDto;
+import ru.practicum.shareit.item.dto.CommentCursor;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.CommentEventDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemWithBookingsDto;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.CommentRepository;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemBookingPointers;
 import ru.practicum.shareit.item.model.ItemRepository;
+import ru.practicum.shareit.outbox.Outbox;
+import ru.practicum.shareit.request.ItemRequestRepository;
 import ru.practicum.shareit.user.User;
-import ru.practicum.shareit.user.UserRepository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Transactional(readOnly = true)
 public class ItemServiceImpl implements ItemService {
 
     private final ItemRepository itemRepository;
-    private final UserRepository userRepository;
+    private final EntityCache<User> userCache;
+    private final EntityCache<Item> itemCache;
     private final CommentRepository commentRepository;
     private final BookingRepository bookingRepository;
+    private final ItemSearchIndex searchIndex;
+    private final ItemSearchCache searchCache;
+    private final ItemRequestRepository itemRequestRepository;
+    private final ItemBookingPointersService pointersService;
+    private final Outbox outbox;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildSearchIndex() {
+        searchIndex.clear();
+        itemRepository.findByAvailableTrue().forEach(searchIndex::index);
+    }
 
     @Override
+    @Transactional
     public ItemDto createItem(ItemDto itemDto, Long ownerId) {
-        User owner = userRepository.findById(ownerId)
+        User owner = userCache.get(ownerId)
                 .orElseThrow(() -> new NoSuchElementException("Пользователь с ID " + ownerId + " не найден"));
 
+        if (itemDto.getRequestId() != null && !itemRequestRepository.existsById(itemDto.getRequestId())) {
+            throw new NoSuchElementException("Запрос с ID " + itemDto.getRequestId() + " не найден");
+        }
+
         Item item = ItemMapper.toItem(itemDto, ownerId);
         Item savedItem = itemRepository.save(item);
+        pointersService.initialize(savedItem.getId());
+        TransactionCallbacks.afterCommit(() -> searchIndex.index(savedItem));
         return ItemMapper.toDto(savedItem);
     }
 
     @Override
+    @Transactional
     public ItemDto updateItem(Long itemId, ItemDto itemDto, Long ownerId) {
         Item existingItem = itemRepository.findById(itemId)
                 .orElseThrow(() -> new NoSuchElementException("Вещь с ID " + itemId + " не найдена"));
@@ -58,90 +96,115 @@ public class ItemServiceImpl implements ItemService {
             existingItem.setAvailable(itemDto.getAvailable());
         }
 
-        Item updatedItem = itemRepository.save(existingItem);
+        // Версия проверяется в UPDATE: если вещь успели изменить после чтения, запрос получит 409, а не затрёт правку
+        Item updatedItem = itemRepository.saveAndFlush(existingItem);
+        itemCache.evict(itemId);
+        TransactionCallbacks.afterCommit(() -> searchIndex.index(updatedItem));
         return ItemMapper.toDto(updatedItem);
     }
 
     @Override
     public ItemWithBookingsDto getItemById(Long itemId, Long userId) {
-        Item item = itemRepository.findById(itemId)
+        Item item = itemCache.get(itemId)
                 .orElseThrow(() -> new NoSuchElementException("Вещь с ID " + itemId + " не найдена"));
 
-        ItemWithBookingsDto result = new ItemWithBookingsDto();
-        result.setId(item.getId());
-        result.setName(item.getName());
-        result.setDescription(item.getDescription());
-        result.setAvailable(item.getAvailable());
-        result.setOwnerId(item.getOwnerId());
-
-        // Добавляем комментарии
-        List<Comment> comments = commentRepository.findByItemIdOrderByCreatedDesc(itemId);
-        result.setComments(ItemMapper.toCommentDto(comments));
+        // Добавляем последние комментарии, полное их число хранится в самой вещи
+        List<Comment> comments = commentRepository.findPageWithAuthor(itemId,
+                PageRequest.of(0, ItemWithBookingsDto.COMMENTS_PREVIEW));
+        ItemWithBookingsDto result = ItemMapper.toItemWithBookingsDto(item, comments);
 
         // Если пользователь - владелец, добавляем информацию о бронированиях
         if (item.getOwnerId().equals(userId)) {
-            LocalDateTime now = LocalDateTime.now();
-
-            // Последнее бронирование
-            List<ru.practicum.shareit.booking.Booking> lastBookings = bookingRepository.findPastByItemOwnerIdOrderByStartDesc(itemId, now, org.springframework.data.domain.PageRequest.of(0, 1));
-            if (!lastBookings.isEmpty()) {
-                ru.practicum.shareit.booking.Booking lastBooking = lastBookings.get(0);
-                ItemWithBookingsDto.BookingInfo lastBookingInfo = new ItemWithBookingsDto.BookingInfo();
-                lastBookingInfo.setId(lastBooking.getId());
-                lastBookingInfo.setBookerId(lastBooking.getBooker().getId());
-                lastBookingInfo.setStart(lastBooking.getStart());
-                lastBookingInfo.setEnd(lastBooking.getEnd());
-                result.setLastBooking(lastBookingInfo);
-            }
-
-            // Следующее бронирование
-            List<ru.practicum.shareit.booking.Booking> nextBookings = bookingRepository.findFutureByItemOwnerIdOrderByStartDesc(itemId, now, org.springframework.data.domain.PageRequest.of(0, 1));
-            if (!nextBookings.isEmpty()) {
-                ru.practicum.shareit.booking.Booking nextBooking = nextBookings.get(0);
-                ItemWithBookingsDto.BookingInfo nextBookingInfo = new ItemWithBookingsDto.BookingInfo();
-                nextBookingInfo.setId(nextBooking.getId());
-                nextBookingInfo.setBookerId(nextBooking.getBooker().getId());
-                nextBookingInfo.setStart(nextBooking.getStart());
-                nextBookingInfo.setEnd(nextBooking.getEnd());
-                result.setNextBooking(nextBookingInfo);
-            }
+            ItemMapper.setBookings(result, pointersService.current(itemId));
         }
 
         return result;
     }
 
+    /**
+     * ETag ответа {@link #getItemById}: вещь берётся из кэша, а владельцу добавляются id последнего
+     * и следующего бронирований из указателей. Отзывы и бронирования при этом не читаются.
+     */
+    @Override
+    public String getItemTag(Long itemId, Long userId) {
+        Item item = itemCache.get(itemId)
+                .orElseThrow(() -> new NoSuchElementException("Вещь с ID " + itemId + " не найдена"));
+        if (!item.getOwnerId().equals(userId)) {
+            return EntityTags.of("item", itemId, item.getVersion());
+        }
+        ItemBookingPointers pointers = pointersService.current(itemId);
+        return EntityTags.of("item", itemId, item.getVersion(), "owner",
+                pointers.getLastBookingId(), pointers.getNextBookingId());
+    }
+
     @Override
     public List<ItemWithBookingsDto> getItemsByOwner(Long ownerId) {
         List<Item> items = itemRepository.findByOwnerId(ownerId);
+        if (items.isEmpty()) {
+            return List.of();
+        }
+        List<Long> itemIds = items.stream()
+                .map(Item::getId)
+                .collect(Collectors.toList());
+
+        // Комментарии и указатели бронирований подгружаются запросами на всё множество вещей, а не по запросу на вещь
+        List<Long> commentIds = commentRepository.findFirstPageIds(itemIds, ItemWithBookingsDto.COMMENTS_PREVIEW);
+        Map<Long, List<Comment>> commentsByItem = commentIds.isEmpty() ? Map.of()
+                : commentRepository.findByIdInWithAuthor(commentIds).stream()
+                .collect(Collectors.groupingBy(comment -> comment.getItem().getId()));
+
+        Map<Long, ItemBookingPointers> pointersByItem = pointersService.current(itemIds);
+
         return items.stream()
-                .map(item -> getItemById(item.getId(), ownerId))
+                .map(item -> {
+                    ItemWithBookingsDto dto = ItemMapper.toItemWithBookingsDto(item,
+                            commentsByItem.getOrDefault(item.getId(), List.of()));
+                    ItemMapper.setBookings(dto, pointersByItem.get(item.getId()));
+                    return dto;
+                })
                 .collect(Collectors.toList());
     }
 
     @Override
-    public List<ItemDto> searchItems(String text) {
-        if (text == null || text.isBlank()) {
+    public List<ItemDto> searchItems(String text, Integer from, Integer size) {
+        List<Long> ids = searchItemIds(text, from, size);
+        if (ids.isEmpty()) {
             return List.of();
         }
-        List<Item> allItems = itemRepository.findAll();
-        return allItems.stream()
-                .filter(item -> item.getAvailable() &&
-                        (item.getName().toLowerCase().contains(text.toLowerCase()) ||
-                         item.getDescription().toLowerCase().contains(text.toLowerCase())))
+        Map<Long, Item> items = itemRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+        return ids.stream()
+                .map(items::get)
+                .filter(Objects::nonNull)
                 .map(ItemMapper::toDto)
                 .collect(Collectors.toList());
     }
 
+    // Поиск идёт по кэшу и индексу в памяти. Без транзакции: классовая readOnly-транзакция брала бы соединение
+    // из пула на каждый вызов, в том числе из реактивного API, хотя к БД поиск не обращается
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<Long> searchItemIds(String text, Integer from, Integer size) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        if (from < 0 || (size != null && size <= 0)) {
+            throw new IllegalArgumentException("Некорректные параметры пагинации");
+        }
+        return searchCache.search(text, from, size == null ? Integer.MAX_VALUE : size);
+    }
+
     @Override
+    @Transactional
     public CommentDto addComment(Long itemId, CommentCreateDto commentCreateDto, Long userId) {
-        Item item = itemRepository.findById(itemId)
+        Item item = itemCache.get(itemId)
                 .orElseThrow(() -> new NoSuchElementException("Вещь с ID " + itemId + " не найдена"));
 
-        User user = userRepository.findById(userId)
+        User user = userCache.get(userId)
                 .orElseThrow(() -> new NoSuchElementException("Пользователь с ID " + userId + " не найден"));
 
         // Проверяем, что пользователь бронировал эту вещь и бронирование завершено
-        List<ru.practicum.shareit.booking.Booking> pastBookings = bookingRepository.findPastApprovedBookingsByItemIdAndBookerId(itemId, userId, LocalDateTime.now());
+        List<Booking> pastBookings = bookingRepository.findPastApprovedBookingsByItemIdAndBookerId(itemId, userId, LocalDateTime.now());
         if (pastBookings.isEmpty()) {
             throw new IllegalArgumentException("Пользователь не может оставить комментарий к вещи, которую не бронировал");
         }
@@ -153,6 +216,28 @@ public class ItemServiceImpl implements ItemService {
         comment.setCreated(LocalDateTime.now());
 
         Comment savedComment = commentRepository.save(comment);
+        itemRepository.incrementCommentCount(itemId);
+        itemCache.evict(itemId);
+        outbox.append(CommentNotifications.AGGREGATE, itemId, CommentNotifications.COMMENT_ADDED,
+                new CommentEventDto(savedComment.getId(), itemId, item.getOwnerId(), userId));
         return ItemMapper.toCommentDto(savedComment);
     }
+
+    @Override
+    public List<CommentDto> getComments(Long itemId, String cursor, Integer size) {
+        if (size == null || size <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры пагинации");
+        }
+        itemCache.get(itemId)
+                .orElseThrow(() -> new NoSuchElementException("Вещь с ID " + itemId + " не найдена"));
+        Pageable page = PageRequest.of(0, size);
+        List<Comment> comments;
+        if (cursor == null || cursor.isBlank()) {
+            comments = commentRepository.findPageWithAuthor(itemId, page);
+        } else {
+            CommentCursor after = CommentCursor.decode(cursor);
+            comments = commentRepository.findPageWithAuthorAfter(itemId, after.created(), after.id(), page);
+        }
+        return ItemMapper.toCommentDto(comments);
+    }
 }
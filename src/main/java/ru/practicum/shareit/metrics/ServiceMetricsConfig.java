@@ -0,0 +1,65 @@
+package ru.practicum.shareit.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcutAdvisor;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+
+/**
+ * Метрики горячего пути: таймеры методов сервисов и число SQL-операторов на запрос.
+ * Отключается свойством {@code shareit.metrics.enabled=false}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "shareit.metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ServiceMetricsConfig {
+
+    // Инфраструктурный советник подхватывается тем же автопрокси, что и @Transactional, поэтому второй прокси
+    // не появляется. Наивысший приоритет: таймер включает открытие и коммит транзакции
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor serviceTimingAdvisor(ObjectProvider<MeterRegistry> meterRegistry) {
+        StaticMethodMatcherPointcutAdvisor advisor = new StaticMethodMatcherPointcutAdvisor() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return ServiceTimingInterceptor.serviceMethod(method, targetClass) != null;
+            }
+        };
+        advisor.setAdvice(new ServiceTimingInterceptor(meterRegistry));
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounter() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR,
+                new SqlStatementCounter(inspector(properties.get(AvailableSettings.STATEMENT_INSPECTOR))));
+    }
+
+    @Bean
+    public SqlStatementsFilter sqlStatementsFilter(MeterRegistry meterRegistry) {
+        return new SqlStatementsFilter(meterRegistry);
+    }
+
+    private static StatementInspector inspector(Object setting) {
+        if (setting == null || setting instanceof StatementInspector) {
+            return (StatementInspector) setting;
+        }
+        Class<?> type = setting instanceof Class<?> cls
+                ? cls
+                : ClassUtils.resolveClassName(setting.toString(), ServiceMetricsConfig.class.getClassLoader());
+        return (StatementInspector) BeanUtils.instantiateClass(type);
+    }
+}
@@ -0,0 +1,138 @@
+package ru.practicum.shareit.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.util.ClassUtils;
+import ru.practicum.shareit.booking.BookingState;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеряет каждый вызов методов сервисов таймером {@value #TIMER} с гистограммой для перцентилей.
+ * Теги: service, method, outcome (success или простое имя исключения), у методов с параметром state — ещё и state.
+ * Таймеры успешных вызовов создаются один раз на метод, поэтому горячий путь не обращается к реестру.
+ */
+class ServiceTimingInterceptor implements MethodInterceptor {
+
+    static final String TIMER = "shareit.service";
+    static final List<Class<?>> SERVICES = List.of(ItemService.class, BookingService.class, UserService.class);
+
+    private static final String STATE_PARAMETER = "state";
+    private static final String INVALID_STATE = "INVALID";
+    private static final BookingState[] STATES = BookingState.values();
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final ConcurrentMap<Method, MethodTimers> timers = new ConcurrentHashMap<>();
+
+    ServiceTimingInterceptor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        MethodTimers methodTimers = timers.computeIfAbsent(invocation.getMethod(), this::timersFor);
+        int state = methodTimers.state(invocation.getArguments());
+        long start = System.nanoTime();
+        try {
+            Object result = invocation.proceed();
+            methodTimers.success[state].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable e) {
+            methodTimers.failure(state, e).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    /**
+     * Метод интерфейса сервиса, который реализует метод класса, или null, если метод не из интерфейса.
+     */
+    static Method serviceMethod(Method method, Class<?> targetClass) {
+        for (Class<?> service : SERVICES) {
+            if (service.isAssignableFrom(targetClass)) {
+                return ClassUtils.getMethodIfAvailable(service, method.getName(), method.getParameterTypes());
+            }
+        }
+        return null;
+    }
+
+    private MethodTimers timersFor(Method method) {
+        Method serviceMethod = serviceMethod(method, method.getDeclaringClass());
+        if (serviceMethod == null) {
+            throw new IllegalStateException("Метод " + method + " не принадлежит интерфейсу сервиса");
+        }
+        int stateIndex = -1;
+        Parameter[] parameters = serviceMethod.getParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i].getName().equals(STATE_PARAMETER) && parameters[i].getType() == String.class) {
+                stateIndex = i;
+            }
+        }
+        return new MethodTimers(meterRegistry.getObject(), serviceMethod.getDeclaringClass().getSimpleName(),
+                serviceMethod.getName(), stateIndex);
+    }
+
+    private static final class MethodTimers {
+
+        private final MeterRegistry registry;
+        private final String service;
+        private final String method;
+        private final int stateIndex;
+        // Без state — один таймер; со state — по таймеру на каждое значение BookingState и ещё один на некорректное
+        private final Timer[] success;
+
+        private MethodTimers(MeterRegistry registry, String service, String method, int stateIndex) {
+            this.registry = registry;
+            this.service = service;
+            this.method = method;
+            this.stateIndex = stateIndex;
+            this.success = new Timer[stateIndex < 0 ? 1 : STATES.length + 1];
+            for (int i = 0; i < success.length; i++) {
+                success[i] = timer(i, "success");
+            }
+        }
+
+        int state(Object[] arguments) {
+            if (stateIndex < 0) {
+                return 0;
+            }
+            Object value = arguments[stateIndex];
+            for (BookingState state : STATES) {
+                if (state.name().equals(value)) {
+                    return state.ordinal();
+                }
+            }
+            return STATES.length;
+        }
+
+        Timer failure(int state, Throwable e) {
+            return timer(state, e.getClass().getSimpleName());
+        }
+
+        private Timer timer(int state, String outcome) {
+            Timer.Builder builder = Timer.builder(TIMER)
+                    .description("Время выполнения методов сервисов")
+                    .tag("service", service)
+                    .tag("method", method)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(10));
+            if (stateIndex >= 0) {
+                builder.tag("state", state < STATES.length ? STATES[state].name() : INVALID_STATE);
+            }
+            return builder.register(registry);
+        }
+    }
+}
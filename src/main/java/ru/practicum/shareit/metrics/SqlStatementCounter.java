@@ -0,0 +1,38 @@
+package ru.practicum.shareit.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Считает SQL-операторы, которые Hibernate подготавливает в текущем потоке между {@link #begin()} и {@link #end()}.
+ * Пакетная вставка подготавливается один раз и считается одним оператором. Если в настройках уже задан
+ * другой инспектор, вызов передаётся ему.
+ */
+class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    private final StatementInspector delegate;
+
+    SqlStatementCounter(StatementInspector delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return delegate == null ? sql : delegate.inspect(sql);
+    }
+
+    static void begin() {
+        COUNT.set(new int[1]);
+    }
+
+    static int end() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return count == null ? 0 : count[0];
+    }
+}
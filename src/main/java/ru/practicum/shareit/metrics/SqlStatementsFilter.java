@@ -0,0 +1,52 @@
+package ru.practicum.shareit.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Записывает в {@value #SUMMARY} число SQL-операторов, выполненных за запрос, с тегами method и uri (шаблон пути).
+ * Асинхронные запросы (выгрузка, реактивное API) не учитываются: их работа идёт в других потоках.
+ */
+class SqlStatementsFilter extends OncePerRequestFilter {
+
+    static final String SUMMARY = "shareit.http.sql.statements";
+
+    private final MeterRegistry meterRegistry;
+
+    SqlStatementsFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlStatementCounter.begin();
+        int statements;
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            statements = SqlStatementCounter.end();
+        }
+        if (isAsyncStarted(request)) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder(SUMMARY)
+                .description("Число SQL-операторов на HTTP-запрос")
+                .baseUnit("statements")
+                .tag("method", request.getMethod())
+                .tag("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                .publishPercentileHistogram()
+                .maximumExpectedValue(1000.0)
+                .register(meterRegistry)
+                .record(statements);
+    }
+}
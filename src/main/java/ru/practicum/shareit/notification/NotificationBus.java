@@ -0,0 +1,251 @@
+package ru.practicum.shareit.notification;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Шина уведомлений внутри процесса с доставкой по SSE. У каждого пользователя своя тема: короткая история
+ * событий для продолжения по Last-Event-ID и список открытых потоков. Все изменения темы идут через
+ * compute в ConcurrentHashMap, поэтому события пользователя получают id и доходят до подписчиков по порядку.
+ * <p>
+ * Поток ожидающего клиента не держит: соединение живёт в асинхронном запросе Tomcat, а отправку
+ * выполняет небольшой пул, который разбирает ограниченные очереди подписчиков.
+ */
+@Component
+public class NotificationBus {
+
+    public static final String RESET_EVENT = "reset";
+
+    private static final Event HEARTBEAT = new Event(0, null, null);
+
+    private final NotificationProperties properties;
+    private final ConcurrentHashMap<Long, Topic> topics = new ConcurrentHashMap<>();
+    // Начинается с текущего времени, чтобы id не повторялись между запусками
+    private final AtomicLong lastEventId = new AtomicLong(System.currentTimeMillis() * 1000);
+    // До этого id события могли пропасть без следа: до запуска или в удалённых неактивных темах
+    private final AtomicLong forgottenBelow = new AtomicLong(lastEventId.get());
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService sender;
+
+    public NotificationBus(NotificationProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        AtomicInteger threads = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(properties.getSenderThreads(), task -> {
+            Thread thread = new Thread(task, "notification-sender-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("shareit.notifications.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Открытые потоки уведомлений")
+                .register(meterRegistry);
+    }
+
+    public void publish(Long userId, String name, Object data) {
+        topics.compute(userId, (id, topic) -> {
+            Topic target = topic != null ? topic : new Topic();
+            target.publish(new Event(lastEventId.incrementAndGet(), name, data));
+            return target;
+        });
+    }
+
+    /**
+     * Открывает поток уведомлений пользователя. Если передан {@code lastEventId}, сначала отправляются
+     * пропущенные события из истории; если часть из них уже вытеснена, приходит событие {@value #RESET_EVENT},
+     * после которого клиенту нужно перечитать бронирования обычными запросами.
+     */
+    public SseEmitter subscribe(Long userId, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(properties.getTimeout().toMillis());
+        Subscriber subscriber = new Subscriber(emitter);
+        Runnable unsubscribe = () -> unsubscribe(userId, subscriber);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+        subscriberCount.incrementAndGet();
+        topics.compute(userId, (id, topic) -> {
+            Topic target = topic != null ? topic : new Topic();
+            if (lastEventId != null) {
+                target.replay(lastEventId, subscriber);
+            }
+            target.subscribers.add(subscriber);
+            return target;
+        });
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    /**
+     * Пульс держит открытыми соединения через прокси и выявляет отвалившихся клиентов: запись в закрытый
+     * сокет завершает подписку. Заодно удаляются темы без подписчиков, чья история устарела.
+     */
+    @Scheduled(fixedDelayString = "${shareit.notifications.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        long expiredBefore = System.nanoTime() - properties.getHistoryTtl().toNanos();
+        for (Long userId : topics.keySet()) {
+            topics.computeIfPresent(userId, (id, topic) -> {
+                topic.subscribers.removeIf(subscriber -> !subscriber.offer(HEARTBEAT));
+                if (topic.subscribers.isEmpty() && topic.lastActivity - expiredBefore < 0) {
+                    Event last = topic.history.peekLast();
+                    if (last != null) {
+                        forgottenBelow.accumulateAndGet(last.id(), Math::max);
+                    }
+                    return null;
+                }
+                return topic;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Long userId : topics.keySet()) {
+            topics.computeIfPresent(userId, (id, topic) -> {
+                topic.subscribers.forEach(Subscriber::close);
+                return topic;
+            });
+        }
+        sender.shutdown();
+    }
+
+    private void unsubscribe(Long userId, Subscriber subscriber) {
+        subscriber.closed.set(true);
+        if (subscriber.counted.compareAndSet(true, false)) {
+            subscriberCount.decrementAndGet();
+        }
+        topics.computeIfPresent(userId, (id, topic) -> {
+            topic.subscribers.remove(subscriber);
+            return topic;
+        });
+    }
+
+    private record Event(long id, String name, Object data) {
+
+        SseEmitter.SseEventBuilder toSse() {
+            if (this == HEARTBEAT) {
+                return SseEmitter.event().comment("heartbeat");
+            }
+            SseEmitter.SseEventBuilder event = SseEmitter.event().id(String.valueOf(id)).name(name);
+            return data == null ? event.data("") : event.data(data, MediaType.APPLICATION_JSON);
+        }
+    }
+
+    // Изменяется только внутри compute по ключу пользователя
+    private final class Topic {
+        private final ArrayDeque<Event> history = new ArrayDeque<>();
+        private final List<Subscriber> subscribers = new ArrayList<>(1);
+        // id последнего события, которого уже нет в истории этого пользователя
+        private long forgottenUpTo = forgottenBelow.get();
+        private long lastActivity = System.nanoTime();
+
+        void publish(Event event) {
+            history.addLast(event);
+            if (history.size() > properties.getHistorySize()) {
+                forgottenUpTo = history.removeFirst().id();
+            }
+            lastActivity = System.nanoTime();
+            subscribers.removeIf(subscriber -> !subscriber.offer(event));
+        }
+
+        void replay(long after, Subscriber subscriber) {
+            lastActivity = System.nanoTime();
+            long current = lastEventId.get();
+            if (after < forgottenUpTo || after > current) {
+                // Чужой или слишком старый id: пропуски не восстановить, клиент продолжит с текущей позиции
+                subscriber.offer(new Event(current, RESET_EVENT, null));
+                return;
+            }
+            for (Event event : history) {
+                if (event.id() > after) {
+                    subscriber.offer(event);
+                }
+            }
+        }
+    }
+
+    private final class Subscriber implements Runnable {
+        private final SseEmitter emitter;
+        private final BlockingQueue<Event> queue = new ArrayBlockingQueue<>(properties.getBufferSize());
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean counted = new AtomicBoolean(true);
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * Кладёт событие в очередь без блокировки. Возвращает false, если подписчик закрыт или не успевает
+         * читать; в последнем случае поток завершается, а пропущенное клиент получит при переподключении.
+         */
+        boolean offer(Event event) {
+            if (closed.get()) {
+                return false;
+            }
+            if (!queue.offer(event)) {
+                close();
+                return false;
+            }
+            schedule();
+            return true;
+        }
+
+        // Само завершение emitter выполняет пул отправки: его обратные вызовы снова обращаются к темам
+        void close() {
+            closed.set(true);
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    sender.execute(this);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            do {
+                if (closed.get()) {
+                    queue.clear();
+                    emitter.complete();
+                    return;
+                }
+                Event event;
+                while (!closed.get() && (event = queue.poll()) != null) {
+                    try {
+                        emitter.send(event.toSse());
+                    } catch (IOException | IllegalStateException e) {
+                        closed.set(true);
+                        emitter.completeWithError(e);
+                        return;
+                    }
+                }
+                scheduled.set(false);
+            } while ((closed.get() || !queue.isEmpty()) && scheduled.compareAndSet(false, true));
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package ru.practicum.shareit.notification;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "shareit.notifications")
+public class NotificationProperties {
+    // Неотправленных событий на подписчика; при переполнении поток закрывается, клиент переподключается с Last-Event-ID
+    private int bufferSize = 64;
+    // Последних событий на пользователя для продолжения по Last-Event-ID
+    private int historySize = 32;
+    // Сколько хранится история пользователя без подписчиков и новых событий
+    private Duration historyTtl = Duration.ofMinutes(10);
+    private Duration timeout = Duration.ofMinutes(30);
+    private int senderThreads = 4;
+}
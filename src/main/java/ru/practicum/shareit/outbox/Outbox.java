@@ -0,0 +1,59 @@
+package ru.practicum.shareit.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.common.TransactionCallbacks;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Запись событий в outbox. Только внутри транзакции изменения: событие появляется тогда и только тогда,
+ * когда закоммичено само изменение. Вставка идёт пакетом вместе с остальными INSERT транзакции.
+ */
+@Component
+@RequiredArgsConstructor
+public class Outbox {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxRelay relay;
+    private final OutboxProperties properties;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(String aggregateType, Long aggregateId, String eventType, Object payload) {
+        appendAll(List.of(new Entry(aggregateType, aggregateId, eventType, payload)));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendAll(Collection<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> events = entries.stream()
+                .map(entry -> new OutboxEvent(null, entry.aggregateType(), entry.aggregateId(), entry.eventType(),
+                        toJson(entry.payload()), now, null, 0, null))
+                .toList();
+        outboxEventRepository.saveAll(events);
+        if (properties.isRelayOnCommit()) {
+            TransactionCallbacks.afterCommit(relay::wakeUp);
+        }
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать событие " + payload, e);
+        }
+    }
+
+    public record Entry(String aggregateType, Long aggregateId, String eventType, Object payload) {
+    }
+}
@@ -0,0 +1,12 @@
+package ru.practicum.shareit.outbox;
+
+/**
+ * Подписчик outbox. Доставка «хотя бы один раз»: после сбоя или переигрывания событие придёт повторно,
+ * поэтому обработка должна быть идемпотентной. События одного агрегата приходят в порядке записи.
+ */
+public interface OutboxConsumer {
+
+    String aggregateType();
+
+    void accept(OutboxEvent event) throws Exception;
+}
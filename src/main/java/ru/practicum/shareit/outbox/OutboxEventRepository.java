@@ -0,0 +1,40 @@
+package ru.practicum.shareit.outbox;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    // Очередь после id: проход продвигается мимо недоставленных, а не выбирает их снова
+    @Query("select e from OutboxEvent e where e.publishedAt is null and e.parkedAt is null and e.id > ?1 order by e.id")
+    List<OutboxEvent> findUnpublishedAfter(Long afterId, Pageable pageable);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.publishedAt = ?2 where e.id in ?1")
+    void markPublished(Collection<Long> ids, LocalDateTime publishedAt);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.attempts = e.attempts + 1 where e.id in ?1")
+    void incrementAttempts(Collection<Long> ids);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.attempts = e.attempts + 1, e.parkedAt = ?2 where e.id in ?1")
+    void park(Collection<Long> ids, LocalDateTime parkedAt);
+
+    // Возвращает в очередь и доставленные, и отложенные события
+    @Modifying
+    @Query("update OutboxEvent e set e.publishedAt = null, e.parkedAt = null, e.attempts = 0 " +
+            "where e.created >= ?1 and (e.publishedAt is not null or e.parkedAt is not null)")
+    int markUnpublishedSince(LocalDateTime from);
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.publishedAt < ?1")
+    int deletePublishedBefore(LocalDateTime before);
+}
@@ -0,0 +1,18 @@
+package ru.practicum.shareit.outbox;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "shareit.outbox")
+public class OutboxProperties {
+    private int batchSize = 100;
+    // Столько неудачных попыток, после чего событие откладывается до переигрывания
+    private int maxAttempts = 10;
+    // Запускать ретранслятор сразу после коммита, а не ждать очередного опроса
+    private boolean relayOnCommit = true;
+    // Сколько хранятся доставленные события, доступные для переигрывания
+    private Duration retention = Duration.ofDays(7);
+}
@@ -0,0 +1,185 @@
+package ru.practicum.shareit.outbox;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Ретранслятор outbox: пакетами по возрастанию id передаёт недоставленные события подписчикам и отмечает
+ * доставленные. Подписчики вызываются вне транзакции, отметка ставится после них, поэтому сбой между ними
+ * приводит к повторной доставке, но не к потере. Если подписчик упал, остальные события того же агрегата
+ * в этом проходе пропускаются — порядок внутри агрегата сохраняется, а чужие агрегаты не ждут.
+ * Проход идёт по id за последним просмотренным событием, поэтому недоставленные события в начале очереди
+ * не загораживают следующие. После {@code max-attempts} неудачных попыток событие откладывается
+ * (parked_at) и доставляется снова только после {@link #replay}; следующие события его агрегата
+ * при этом уходят без него.
+ * <p>
+ * Запускается после коммита записавшей события транзакции и по расписанию как страховка. Порядок внутри
+ * агрегата гарантирован при одном ретрансляторе на базу; несколько узлов дают дубли, но не потери.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    static final String RELAYED = "shareit.outbox.relayed";
+    static final String FAILED = "shareit.outbox.failed";
+    static final String PARKED = "shareit.outbox.parked";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final Map<String, List<OutboxConsumer>> consumers;
+    private final OutboxProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, List<OutboxConsumer> consumers,
+                       OutboxProperties properties, PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.consumers = consumers.stream().collect(Collectors.groupingBy(OutboxConsumer::aggregateType));
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Планирует проход в фоне; запросы, пришедшие до его начала, сливаются в один.
+     */
+    public void wakeUp() {
+        if (pending.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    pending.set(false);
+                    relay();
+                });
+            } catch (RejectedExecutionException e) {
+                pending.set(false);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.outbox.poll-interval:PT1S}")
+    public void poll() {
+        wakeUp();
+    }
+
+    /**
+     * Доставляет всё, что накопилось, и возвращает число доставленных событий.
+     */
+    public synchronized int relay() {
+        int relayed = 0;
+        long lastId = 0;
+        // Агрегаты, на которых проход остановился; их события в следующих пакетах тоже пропускаются
+        Set<String> blocked = new HashSet<>();
+        while (true) {
+            long afterId = lastId;
+            List<OutboxEvent> batch = transactionTemplate.execute(status ->
+                    outboxEventRepository.findUnpublishedAfter(afterId, PageRequest.of(0, properties.getBatchSize())));
+            if (batch.isEmpty()) {
+                return relayed;
+            }
+            List<Long> published = new ArrayList<>(batch.size());
+            List<Long> failed = new ArrayList<>();
+            List<Long> parked = new ArrayList<>();
+            for (OutboxEvent event : batch) {
+                String aggregate = event.getAggregateType() + ":" + event.getAggregateId();
+                if (blocked.contains(aggregate)) {
+                    continue;
+                }
+                if (deliver(event)) {
+                    published.add(event.getId());
+                } else if (event.getAttempts() + 1 >= properties.getMaxAttempts()) {
+                    log.error("Outbox: событие {} {} агрегата {} отложено после {} попыток",
+                            event.getId(), event.getEventType(), event.getAggregateId(), event.getAttempts() + 1);
+                    parked.add(event.getId());
+                    blocked.add(aggregate);
+                } else {
+                    failed.add(event.getId());
+                    blocked.add(aggregate);
+                }
+            }
+            LocalDateTime now = LocalDateTime.now();
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!published.isEmpty()) {
+                    outboxEventRepository.markPublished(published, now);
+                }
+                if (!failed.isEmpty()) {
+                    outboxEventRepository.incrementAttempts(failed);
+                }
+                if (!parked.isEmpty()) {
+                    outboxEventRepository.park(parked, now);
+                }
+            });
+            meterRegistry.counter(RELAYED).increment(published.size());
+            meterRegistry.counter(FAILED).increment(failed.size() + parked.size());
+            meterRegistry.counter(PARKED).increment(parked.size());
+            relayed += published.size();
+            // Неполный пакет — очередь исчерпана; иначе продолжаем за последним просмотренным событием
+            if (batch.size() < properties.getBatchSize()) {
+                return relayed;
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+    }
+
+    /**
+     * Снова доставляет события, записанные начиная с {@code from}, в том числе отложенные,
+     * например после исправления подписчика.
+     */
+    public int replay(LocalDateTime from) {
+        Integer marked = transactionTemplate.execute(status -> outboxEventRepository.markUnpublishedSince(from));
+        log.info("Outbox: {} событий с {} поставлены на повторную доставку", marked, from);
+        wakeUp();
+        return marked == null ? 0 : marked;
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.outbox.cleanup-interval:PT1H}")
+    public void cleanUp() {
+        LocalDateTime before = LocalDateTime.now().minus(properties.getRetention());
+        Integer deleted = transactionTemplate.execute(status -> outboxEventRepository.deletePublishedBefore(before));
+        if (deleted != null && deleted > 0) {
+            log.info("Outbox: удалено {} доставленных событий старше {}", deleted, before);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private boolean deliver(OutboxEvent event) {
+        for (OutboxConsumer consumer : consumers.getOrDefault(event.getAggregateType(), List.of())) {
+            try {
+                consumer.accept(event);
+            } catch (Exception e) {
+                log.warn("Outbox: событие {} {} агрегата {} не доставлено подписчику {} (попытка {})",
+                        event.getId(), event.getEventType(), event.getAggregateId(),
+                        consumer.getClass().getSimpleName(), event.getAttempts() + 1, e);
+                return false;
+            }
+        }
+        return true;
+    }
+}
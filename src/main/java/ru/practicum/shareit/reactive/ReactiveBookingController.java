@@ -0,0 +1,33 @@
+package ru.practicum.shareit.reactive;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+
+/**
+ * Неблокирующий вариант выборок BookingController по состоянию.
+ */
+@RestController
+@RequestMapping("/reactive/bookings")
+@RequiredArgsConstructor
+public class ReactiveBookingController {
+
+    private final ReactiveBookingReader bookingReader;
+
+    @GetMapping
+    public Flux<BookingResponseDto> getUserBookings(@RequestParam(defaultValue = "ALL") String state,
+                                                    @RequestHeader("X-Sharer-User-Id") Long userId,
+                                                    @RequestParam(defaultValue = "0") Integer from,
+                                                    @RequestParam(defaultValue = "10") Integer size) {
+        return bookingReader.getUserBookings(state, userId, from, size);
+    }
+
+    @GetMapping("/owner")
+    public Flux<BookingResponseDto> getOwnerBookings(@RequestParam(defaultValue = "ALL") String state,
+                                                     @RequestHeader("X-Sharer-User-Id") Long ownerId,
+                                                     @RequestParam(defaultValue = "0") Integer from,
+                                                     @RequestParam(defaultValue = "10") Integer size) {
+        return bookingReader.getOwnerBookings(state, ownerId, from, size);
+    }
+}
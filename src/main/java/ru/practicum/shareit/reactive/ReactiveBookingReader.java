@@ -0,0 +1,83 @@
+package ru.practicum.shareit.reactive;
+
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.shareit.booking.BookingState;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.common.FromSizeRequest;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.user.dto.UserDto;
+
+import java.time.LocalDateTime;
+import java.util.NoSuchElementException;
+
+/**
+ * Неблокирующие выборки бронирований по состоянию с теми же проверками и порядком, что у BookingService.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReactiveBookingReader {
+
+    private static final String BOOKING_COLUMNS = "select b.id, b.start_date, b.end_date, b.status, " +
+            "i.id as item_id, i.name as item_name, i.description as item_description, i.available as item_available, " +
+            "u.id as booker_id, u.name as booker_name, u.email as booker_email " +
+            "from bookings b join items i on i.id = b.item_id join users u on u.id = b.booker_id ";
+
+    private final ReactiveDatabase database;
+
+    public Flux<BookingResponseDto> getUserBookings(String state, Long userId, Integer from, Integer size) {
+        return find("b.booker_id = :userId", BookingState.parse(state), userId, FromSizeRequest.of(from, size));
+    }
+
+    public Flux<BookingResponseDto> getOwnerBookings(String state, Long ownerId, Integer from, Integer size) {
+        return find("b.owner_id = :userId", BookingState.parse(state), ownerId, FromSizeRequest.of(from, size));
+    }
+
+    private Flux<BookingResponseDto> find(String scope, BookingState state, Long userId, FromSizeRequest page) {
+        String condition = switch (state) {
+            case ALL -> "1 = 1";
+            case CURRENT, PAST, FUTURE -> "b.phase = :phase";
+            case WAITING, REJECTED -> "b.status = :status";
+        };
+        DatabaseClient.GenericExecuteSpec query = database.client()
+                .sql(BOOKING_COLUMNS + "where " + scope + " and " + condition +
+                        " order by b.start_date desc, b.id desc limit :limit offset :offset")
+                .bind("userId", userId)
+                .bind("limit", page.getPageSize())
+                .bind("offset", page.getOffset());
+        query = switch (state) {
+            case CURRENT, PAST, FUTURE -> query.bind("phase", state.name());
+            case WAITING -> query.bind("status", BookingStatus.WAITING.name());
+            case REJECTED -> query.bind("status", BookingStatus.REJECTED.name());
+            case ALL -> query;
+        };
+        return requireUser(userId).thenMany(query.map(ReactiveBookingReader::toDto).all());
+    }
+
+    private Mono<Void> requireUser(Long userId) {
+        return database.client().sql("select id from users where id = :id")
+                .bind("id", userId)
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .switchIfEmpty(Mono.error(() -> new NoSuchElementException("Пользователь с ID " + userId + " не найден")))
+                .then();
+    }
+
+    private static BookingResponseDto toDto(Readable row) {
+        BookingResponseDto booking = new BookingResponseDto();
+        booking.setId(row.get("id", Long.class));
+        booking.setStart(row.get("start_date", LocalDateTime.class));
+        booking.setEnd(row.get("end_date", LocalDateTime.class));
+        booking.setStatus(row.get("status", String.class));
+        booking.setItem(new ItemDto(row.get("item_id", Long.class), row.get("item_name", String.class),
+                row.get("item_description", String.class), row.get("item_available", Boolean.class), null));
+        booking.setBooker(new UserDto(row.get("booker_id", Long.class), row.get("booker_name", String.class),
+                row.get("booker_email", String.class)));
+        return booking;
+    }
+}
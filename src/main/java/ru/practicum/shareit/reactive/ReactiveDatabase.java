@@ -0,0 +1,33 @@
+package ru.practicum.shareit.reactive;
+
+import io.r2dbc.pool.ConnectionPool;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * Пул R2DBC-соединений реактивного API. Намеренно не публикуется бином типа ConnectionFactory:
+ * его наличие отключает автоконфигурацию DataSource, на которой работает JPA.
+ */
+public class ReactiveDatabase implements DisposableBean {
+
+    private final ConnectionPool pool;
+    private final DatabaseClient client;
+
+    public ReactiveDatabase(ConnectionPool pool) {
+        this.pool = pool;
+        this.client = DatabaseClient.create(pool);
+    }
+
+    public DatabaseClient client() {
+        return client;
+    }
+
+    public int getAcquired() {
+        return pool.getMetrics().map(metrics -> metrics.acquiredSize()).orElse(0);
+    }
+
+    @Override
+    public void destroy() {
+        pool.dispose();
+    }
+}
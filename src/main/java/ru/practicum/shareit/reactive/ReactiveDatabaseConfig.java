@@ -0,0 +1,49 @@
+package ru.practicum.shareit.reactive;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ReactiveDatabaseProperties.class)
+public class ReactiveDatabaseConfig {
+
+    @Bean
+    public ReactiveDatabase reactiveDatabase(ReactiveDatabaseProperties properties,
+                                             DataSourceProperties dataSourceProperties) {
+        String url = properties.getUrl() != null ? properties.getUrl() : toR2dbcUrl(dataSourceProperties.determineUrl());
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        String username = dataSourceProperties.determineUsername();
+        if (username != null) {
+            options.option(ConnectionFactoryOptions.USER, username);
+        }
+        String password = dataSourceProperties.determinePassword();
+        if (password != null) {
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        ConnectionPoolConfiguration pool = ConnectionPoolConfiguration.builder(ConnectionFactories.get(options.build()))
+                .initialSize(0)
+                .maxSize(properties.getPoolSize())
+                .build();
+        return new ReactiveDatabase(new ConnectionPool(pool));
+    }
+
+    // jdbc:h2:mem:testdb -> r2dbc:h2:mem:///testdb, jdbc:postgresql://host/db -> r2dbc:postgresql://host/db
+    static String toR2dbcUrl(String jdbcUrl) {
+        if (jdbcUrl.startsWith("jdbc:h2:mem:")) {
+            return "r2dbc:h2:mem:///" + jdbcUrl.substring("jdbc:h2:mem:".length());
+        }
+        if (jdbcUrl.startsWith("jdbc:h2:file:")) {
+            return "r2dbc:h2:file:///" + jdbcUrl.substring("jdbc:h2:file:".length());
+        }
+        if (jdbcUrl.startsWith("jdbc:")) {
+            return "r2dbc:" + jdbcUrl.substring("jdbc:".length());
+        }
+        throw new IllegalStateException("Не удалось вывести R2DBC URL из " + jdbcUrl + ", задайте shareit.reactive.url");
+    }
+}
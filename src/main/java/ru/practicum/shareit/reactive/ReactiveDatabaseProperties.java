@@ -0,0 +1,12 @@
+package ru.practicum.shareit.reactive;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "shareit.reactive")
+public class ReactiveDatabaseProperties {
+    // По умолчанию выводится из spring.datasource.url
+    private String url;
+    private int poolSize = 10;
+}
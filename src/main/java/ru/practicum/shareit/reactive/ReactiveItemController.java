@@ -0,0 +1,37 @@
+package ru.practicum.shareit.reactive;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemWithBookingsDto;
+
+/**
+ * Неблокирующий вариант чтений ItemController: поток сервлета освобождается на время запроса к БД.
+ */
+@RestController
+@RequestMapping("/reactive/items")
+@RequiredArgsConstructor
+public class ReactiveItemController {
+
+    private final ReactiveItemReader itemReader;
+
+    @GetMapping("/{itemId}")
+    public Mono<ItemWithBookingsDto> getItemById(@PathVariable Long itemId,
+                                                 @RequestHeader("X-Sharer-User-Id") Long userId) {
+        return itemReader.getItemById(itemId, userId);
+    }
+
+    @GetMapping
+    public Flux<ItemWithBookingsDto> getItemsByOwner(@RequestHeader("X-Sharer-User-Id") Long ownerId) {
+        return itemReader.getItemsByOwner(ownerId);
+    }
+
+    @GetMapping("/search")
+    public Flux<ItemDto> searchItems(@RequestParam String text,
+                                     @RequestParam(defaultValue = "0") Integer from,
+                                     @RequestParam(required = false) Integer size) {
+        return itemReader.searchItems(text, from, size);
+    }
+}
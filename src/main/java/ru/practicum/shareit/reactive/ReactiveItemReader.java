@@ -0,0 +1,147 @@
+package ru.practicum.shareit.reactive;
+
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemWithBookingsDto;
+import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.model.ItemBookingPointers;
+import ru.practicum.shareit.item.service.ItemBookingPointersService;
+import ru.practicum.shareit.item.service.ItemService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Неблокирующие чтения вещей с теми же ответами, что и у ItemService.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReactiveItemReader {
+
+    private static final String ITEM_COLUMNS = "select id, name, description, available, owner_id, request_id, comment_count from items ";
+
+    private final ReactiveDatabase database;
+    private final ItemService itemService;
+    private final ItemBookingPointersService pointersService;
+
+    public Mono<ItemWithBookingsDto> getItemById(Long itemId, Long userId) {
+        return database.client().sql(ITEM_COLUMNS + "where id = :id")
+                .bind("id", itemId)
+                .map(ReactiveItemReader::toItemWithBookingsDto)
+                .one()
+                .switchIfEmpty(Mono.error(() -> new NoSuchElementException("Вещь с ID " + itemId + " не найдена")))
+                .flatMap(item -> withDetails(List.of(item), item.getOwnerId().equals(userId)))
+                .map(items -> items.get(0));
+    }
+
+    public Flux<ItemWithBookingsDto> getItemsByOwner(Long ownerId) {
+        return database.client().sql(ITEM_COLUMNS + "where owner_id = :ownerId order by id")
+                .bind("ownerId", ownerId)
+                .map(ReactiveItemReader::toItemWithBookingsDto)
+                .all()
+                .collectList()
+                .flatMap(items -> items.isEmpty() ? Mono.just(items) : withDetails(items, true))
+                .flatMapIterable(items -> items);
+    }
+
+    public Flux<ItemDto> searchItems(String text, Integer from, Integer size) {
+        List<Long> ids = itemService.searchItemIds(text, from, size);
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return database.client().sql(ITEM_COLUMNS + "where id in (:ids)")
+                .bind("ids", ids)
+                .map(row -> {
+                    ItemWithBookingsDto item = toItemWithBookingsDto(row);
+                    return new ItemDto(item.getId(), item.getName(), item.getDescription(), item.getAvailable(),
+                            row.get("request_id", Long.class));
+                })
+                .all()
+                .collectMap(ItemDto::getId)
+                // Порядок выдачи задаёт индекс поиска
+                .flatMapIterable(found -> ids.stream().map(found::get).filter(Objects::nonNull).toList());
+    }
+
+    private Mono<List<ItemWithBookingsDto>> withDetails(List<ItemWithBookingsDto> items, boolean withBookings) {
+        List<Long> ids = items.stream().map(ItemWithBookingsDto::getId).toList();
+        Mono<Map<Long, List<CommentDto>>> comments = database.client()
+                .sql("select id, text, author_name, created, item_id from (" +
+                        "select c.id, c.text, u.name as author_name, c.created, c.item_id, " +
+                        "row_number() over (partition by c.item_id order by c.created desc, c.id desc) as rn " +
+                        "from comments c join users u on u.id = c.author_id where c.item_id in (:ids)) first_comments " +
+                        "where rn <= :limit order by created desc, id desc")
+                .bind("ids", ids)
+                .bind("limit", ItemWithBookingsDto.COMMENTS_PREVIEW)
+                .map(row -> Map.entry(row.get("item_id", Long.class), new CommentDto(row.get("id", Long.class),
+                        row.get("text", String.class), row.get("author_name", String.class),
+                        row.get("created", LocalDateTime.class))))
+                .all()
+                .collect(Collectors.groupingBy(Map.Entry::getKey,
+                        Collectors.mapping(Map.Entry::getValue, Collectors.toList())));
+        Mono<Map<Long, ItemBookingPointers>> pointers = withBookings ? pointers(ids) : Mono.just(Map.of());
+        return Mono.zip(comments, pointers).map(details -> {
+            for (ItemWithBookingsDto item : items) {
+                item.setComments(details.getT1().getOrDefault(item.getId(), List.of()));
+                ItemBookingPointers itemPointers = details.getT2().get(item.getId());
+                if (itemPointers != null) {
+                    ItemMapper.setBookings(item, itemPointers);
+                }
+            }
+            return items;
+        });
+    }
+
+    // Действительные указатели читаются как есть; устаревшие пересчитывает ItemBookingPointersService
+    // на пуле для блокирующих задач, чтобы логика пересчёта была одна
+    private Mono<Map<Long, ItemBookingPointers>> pointers(List<Long> ids) {
+        LocalDateTime now = LocalDateTime.now();
+        return database.client().sql("select * from item_booking_pointers where item_id in (:ids)")
+                .bind("ids", ids)
+                .map(ReactiveItemReader::toPointers)
+                .all()
+                .filter(pointers -> pointers.isValidAt(now))
+                .collectMap(ItemBookingPointers::getItemId)
+                .flatMap(valid -> {
+                    List<Long> stale = ids.stream().filter(id -> !valid.containsKey(id)).toList();
+                    if (stale.isEmpty()) {
+                        return Mono.just(valid);
+                    }
+                    return Mono.fromCallable(() -> pointersService.current(stale))
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .map(computed -> {
+                                valid.putAll(computed);
+                                return valid;
+                            });
+                });
+    }
+
+    private static ItemWithBookingsDto toItemWithBookingsDto(Readable row) {
+        ItemWithBookingsDto item = new ItemWithBookingsDto();
+        item.setId(row.get("id", Long.class));
+        item.setName(row.get("name", String.class));
+        item.setDescription(row.get("description", String.class));
+        item.setAvailable(row.get("available", Boolean.class));
+        item.setOwnerId(row.get("owner_id", Long.class));
+        item.setCommentCount(row.get("comment_count", Long.class));
+        return item;
+    }
+
+    private static ItemBookingPointers toPointers(Readable row) {
+        return new ItemBookingPointers(row.get("item_id", Long.class),
+                row.get("last_booking_id", Long.class), row.get("last_booker_id", Long.class),
+                row.get("last_start", LocalDateTime.class), row.get("last_end", LocalDateTime.class),
+                row.get("next_booking_id", Long.class), row.get("next_booker_id", Long.class),
+                row.get("next_start", LocalDateTime.class), row.get("next_end", LocalDateTime.class),
+                row.get("valid_until", LocalDateTime.class));
+    }
+}
@@ -0,0 +1,64 @@
+package ru.practicum.shareit.replica;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Разрешает чтение с реплик в GET-запросах, кроме пользователей, которые сами недавно что-то меняли.
+ * Изменяющий запрос отмечается и до обработки, и после: следующий GET того же пользователя, пришедший
+ * раньше ответа, тоже уходит на основную базу, а окно отсчитывается от завершения записи.
+ */
+class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final ReplicaRouting routing;
+
+    ReadYourWritesFilter(ReplicaRouting routing) {
+        this.routing = routing;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Long userId = userId(request);
+        if (!SAFE_METHODS.contains(request.getMethod())) {
+            if (userId != null) {
+                routing.onWrite(userId);
+            }
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                if (userId != null) {
+                    routing.onWrite(userId);
+                }
+            }
+            return;
+        }
+        routing.allowReplica(userId == null || !routing.wroteRecently(userId));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            routing.allowReplica(false);
+        }
+    }
+
+    private static Long userId(HttpServletRequest request) {
+        String header = request.getHeader(USER_HEADER);
+        if (header == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(header.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ru.practicum.shareit.replica;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "shareit.replicas")
+public class ReplicaProperties {
+    private boolean enabled;
+    // JDBC URL реплик; логин и пароль по умолчанию те же, что у spring.datasource
+    private List<String> urls = new ArrayList<>();
+    private String username;
+    private String password;
+    private int poolSize = 10;
+    // Недолгое ожидание соединения с репликой: при недоступности чтение быстрее уйдёт на основную базу
+    private Duration connectionTimeout = Duration.ofSeconds(1);
+    // Сколько не обращаться к реплике после неудачного подключения
+    private Duration retryAfter = Duration.ofSeconds(30);
+    // Сколько после своего изменения пользователь читает с основной базы; должно перекрывать отставание реплик
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+    private int maxStickyUsers = 100_000;
+}
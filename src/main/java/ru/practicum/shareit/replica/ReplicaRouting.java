@@ -0,0 +1,54 @@
+package ru.practicum.shareit.replica;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Разрешение читать с реплики для текущего потока и память о недавно писавших пользователях.
+ * По умолчанию реплики не используются: фоновые задачи, прогрев при старте и изменяющие запросы
+ * всегда видят основную базу. Разрешение выдаёт {@link ReadYourWritesFilter} на время GET-запроса.
+ * Память о записях локальна для узла; за балансировщиком пользователю нужна привязка к узлу.
+ */
+public class ReplicaRouting {
+
+    private static final ThreadLocal<Boolean> REPLICA_ALLOWED = new ThreadLocal<>();
+
+    private final Cache<Long, Boolean> recentWriters;
+
+    public ReplicaRouting(ReplicaProperties properties) {
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getReadYourWritesWindow())
+                .maximumSize(properties.getMaxStickyUsers())
+                .build();
+    }
+
+    public boolean isReplicaAllowed() {
+        return Boolean.TRUE.equals(REPLICA_ALLOWED.get());
+    }
+
+    /**
+     * Читает ли текущая транзакция с реплики: читающая транзакция в потоке с разрешением.
+     * По этому же условию соединение выбирает {@link ReplicaRoutingDataSource}.
+     */
+    public static boolean readsReplica() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && Boolean.TRUE.equals(REPLICA_ALLOWED.get());
+    }
+
+    public void onWrite(Long userId) {
+        recentWriters.put(userId, Boolean.TRUE);
+    }
+
+    public boolean wroteRecently(Long userId) {
+        return recentWriters.getIfPresent(userId) != null;
+    }
+
+    void allowReplica(boolean allowed) {
+        if (allowed) {
+            REPLICA_ALLOWED.set(Boolean.TRUE);
+        } else {
+            REPLICA_ALLOWED.remove();
+        }
+    }
+}
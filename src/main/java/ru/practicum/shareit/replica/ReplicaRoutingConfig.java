@@ -0,0 +1,85 @@
+package ru.practicum.shareit.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import ru.practicum.shareit.concurrency.DatabaseBulkhead;
+import ru.practicum.shareit.concurrency.DatabaseBulkheadProperties;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Чтение с реплик. Включается свойством {@code shareit.replicas.enabled}; тогда DataSource приложения
+ * собирается здесь вместо автоконфигурации: основной пул по {@code spring.datasource.*} (настройки Hikari —
+ * {@code spring.datasource.hikari.*}) и по пулу на каждый адрес из {@code shareit.replicas.urls}.
+ * Основной пул не объявлен отдельным бином: иначе обёртки DataSource применялись бы к нему дважды. Ограничитель
+ * соединений ({@code shareit.db-bulkhead.enabled}) ставится здесь на каждый пул по его размеру, так что чтения
+ * с реплик не занимают разрешения основной базы. Flyway, планировщики и изменяющие запросы работают с основной базой, реплики наполняются
+ * её репликацией.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "shareit.replicas", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaRoutingConfig {
+
+    @Bean
+    public ReplicaRouting replicaRouting(ReplicaProperties properties) {
+        return new ReplicaRouting(properties);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(ReplicaRouting routing) {
+        return new ReadYourWritesFilter(routing);
+    }
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties dataSourceProperties, ReplicaProperties properties,
+                                 ReplicaRouting routing, Environment environment, MeterRegistry meterRegistry) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        Binder binder = Binder.get(environment);
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        DatabaseBulkheadProperties bulkhead = binder.bindOrCreate("shareit.db-bulkhead",
+                DatabaseBulkheadProperties.class);
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : properties.getUrls()) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(url)
+                    .username(properties.getUsername() != null
+                            ? properties.getUsername() : dataSourceProperties.determineUsername())
+                    .password(properties.getPassword() != null
+                            ? properties.getPassword() : dataSourceProperties.determinePassword())
+                    .build();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setMaximumPoolSize(properties.getPoolSize());
+            replica.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+            replica.setReadOnly(true);
+            replicas.add(limited(replica, 0, bulkhead, replica.getPoolName(), meterRegistry));
+        }
+        DataSource limitedPrimary = limited(primary, bulkhead.getPermits(), bulkhead, "primary", meterRegistry);
+        return new ReplicaRoutingDataSource(limitedPrimary, replicas, routing, properties.getRetryAfter(),
+                meterRegistry);
+    }
+
+    private static DataSource limited(HikariDataSource pool, int permits, DatabaseBulkheadProperties bulkhead,
+                                      String name, MeterRegistry meterRegistry) {
+        if (!bulkhead.isEnabled()) {
+            return pool;
+        }
+        DatabaseBulkhead limited = DatabaseBulkhead.ofPool(pool, permits, bulkhead.getAcquireTimeout());
+        limited.bindTo(meterRegistry, name);
+        return limited;
+    }
+}
@@ -0,0 +1,120 @@
+package ru.practicum.shareit.replica;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Направляет читающие транзакции на реплики, остальное — на основную базу. Соединение берётся лениво,
+ * при первом операторе: к этому моменту транзакция уже отмечена как readOnly, а при открытии —
+ * ещё нет. Реплики выбираются по кругу; реплика, к которой не удалось подключиться, пропускается
+ * {@code retryAfter}, а если недоступны все, чтение идёт на основную базу. Запрос, у которого реплика
+ * отказала уже после выдачи соединения, получает 503 и при повторе уходит на другую базу.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    static final String ROUTED = "shareit.db.routed";
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, ReplicaRouting routing,
+                                    Duration retryAfter, MeterRegistry meterRegistry) {
+        super(new Router(primary, replicas, routing, retryAfter, meterRegistry));
+    }
+
+    @Override
+    public void close() throws IOException {
+        Router router = (Router) obtainTargetDataSource();
+        for (Replica replica : router.replicas) {
+            if (replica.dataSource instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+        if (router.getTargetDataSource() instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    private static final class Router extends DelegatingDataSource {
+
+        private final List<Replica> replicas;
+        private final ReplicaRouting routing;
+        private final long retryAfterNanos;
+        private final AtomicInteger next = new AtomicInteger();
+        private final Counter toPrimary;
+        private final Counter toReplica;
+        private final Counter failover;
+
+        Router(DataSource primary, List<DataSource> replicas, ReplicaRouting routing, Duration retryAfter,
+               MeterRegistry meterRegistry) {
+            super(primary);
+            this.replicas = replicas.stream().map(Replica::new).toList();
+            this.routing = routing;
+            this.retryAfterNanos = retryAfter.toNanos();
+            this.toPrimary = meterRegistry.counter(ROUTED, "target", "primary");
+            this.toReplica = meterRegistry.counter(ROUTED, "target", "replica");
+            this.failover = meterRegistry.counter(ROUTED, "target", "failover");
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || !routing.isReplicaAllowed()
+                    || replicas.isEmpty()) {
+                toPrimary.increment();
+                return super.getConnection();
+            }
+            int start = next.getAndIncrement();
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+                if (replica.isDown()) {
+                    continue;
+                }
+                try {
+                    Connection connection = replica.dataSource.getConnection();
+                    toReplica.increment();
+                    return connection;
+                } catch (SQLException e) {
+                    replica.markDown(retryAfterNanos);
+                    log.warn("Реплика {} недоступна, чтение переключено на основную базу", replica.dataSource, e);
+                }
+            }
+            // Сюда доходим, только если каждая реплика недоступна или отказала при подключении
+            failover.increment();
+            return super.getConnection();
+        }
+    }
+
+    private static final class Replica {
+
+        private final DataSource dataSource;
+        private volatile long downUntil;
+        private volatile boolean down;
+
+        Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        boolean isDown() {
+            if (down && System.nanoTime() - downUntil >= 0) {
+                down = false;
+            }
+            return down;
+        }
+
+        void markDown(long forNanos) {
+            downUntil = System.nanoTime() + forNanos;
+            down = true;
+        }
+    }
+}
@@ -1,12 +1,51 @@
 package ru.practicum.shareit.request;
 
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.request.dto.ItemRequestCreateDto;
+import ru.practicum.shareit.request.dto.ItemRequestCursor;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.service.ItemRequestService;
+
+import java.util.List;
 
-/**
- * TODO Sprint add-item-requests.
- */
 @RestController
 @RequestMapping(path = "/requests")
+@RequiredArgsConstructor
 public class ItemRequestController {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private final ItemRequestService requestService;
+
+    @PostMapping
+    public ItemRequestDto createRequest(@Valid @RequestBody ItemRequestCreateDto requestCreateDto,
+                                        @RequestHeader("X-Sharer-User-Id") Long userId) {
+        return requestService.createRequest(requestCreateDto, userId);
+    }
+
+    @GetMapping
+    public List<ItemRequestDto> getOwnRequests(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        return requestService.getOwnRequests(userId);
+    }
+
+    @GetMapping("/all")
+    public ResponseEntity<List<ItemRequestDto>> getOtherRequests(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                                 @RequestParam(required = false) String cursor,
+                                                                 @RequestParam(defaultValue = "10") Integer size) {
+        List<ItemRequestDto> requests = requestService.getOtherRequests(userId, cursor, size);
+        if (requests.isEmpty() || requests.size() < size) {
+            return ResponseEntity.ok(requests);
+        }
+        String next = ItemRequestCursor.after(requests.get(requests.size() - 1)).encode();
+        return ResponseEntity.ok().header(NEXT_CURSOR_HEADER, next).body(requests);
+    }
+
+    @GetMapping("/{requestId}")
+    public ItemRequestDto getRequestById(@PathVariable Long requestId,
+                                         @RequestHeader("X-Sharer-User-Id") Long userId) {
+        return requestService.getRequestById(requestId, userId);
+    }
 }
@@ -0,0 +1,22 @@
+package ru.practicum.shareit.request;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ItemRequestRepository extends JpaRepository<ItemRequest, Long> {
+    List<ItemRequest> findByRequestorIdOrderByCreatedDescIdDesc(Long requestorId);
+
+    // Лента чужих запросов по индексу (created desc, id desc): первая страница и продолжение после курсора
+    @Query("select r from ItemRequest r where r.requestorId <> ?1 order by r.created desc, r.id desc")
+    List<ItemRequest> findOthers(Long userId, Pageable pageable);
+
+    @Query("select r from ItemRequest r where r.requestorId <> ?1 " +
+            "and (r.created < ?2 or (r.created = ?2 and r.id < ?3)) order by r.created desc, r.id desc")
+    List<ItemRequest> findOthersAfter(Long userId, LocalDateTime created, Long id, Pageable pageable);
+}
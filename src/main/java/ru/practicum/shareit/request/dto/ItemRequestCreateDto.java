@@ -0,0 +1,14 @@
+package ru.practicum.shareit.request.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemRequestCreateDto {
+    @NotBlank(message = "Описание запроса не может быть пустым")
+    private String description;
+}
@@ -0,0 +1,34 @@
+package ru.practicum.shareit.request.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Позиция в ленте запросов, упорядоченной по (created desc, id desc).
+ * Клиенту отдаётся как непрозрачная строка в заголовке X-Next-Cursor.
+ */
+public record ItemRequestCursor(LocalDateTime created, Long id) {
+
+    public static ItemRequestCursor after(ItemRequestDto request) {
+        return new ItemRequestCursor(request.getCreated(), request.getId());
+    }
+
+    public static ItemRequestCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Некорректный курсор: " + token);
+            }
+            return new ItemRequestCursor(LocalDateTime.parse(parts[0]), Long.valueOf(parts[1]));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Некорректный курсор: " + token);
+        }
+    }
+
+    public String encode() {
+        String raw = created + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
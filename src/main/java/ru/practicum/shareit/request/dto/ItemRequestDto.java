@@ -1,7 +1,28 @@
 package ru.practicum.shareit.request.dto;
 
-/**
- * TODO Sprint add-item-requests.
- */
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class ItemRequestDto {
+    private Long id;
+    private String description;
+    private LocalDateTime created;
+    private List<Answer> items;
+
+    // Вещь, добавленная в ответ на запрос
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Answer {
+        private Long id;
+        private String name;
+        private Long ownerId;
+    }
 }
@@ -0,0 +1,21 @@
+package ru.practicum.shareit.request.mapper;
+
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.ItemRequest;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class ItemRequestMapper {
+    public static ItemRequestDto toDto(ItemRequest request, List<Item> answers) {
+        ItemRequestDto dto = new ItemRequestDto();
+        dto.setId(request.getId());
+        dto.setDescription(request.getDescription());
+        dto.setCreated(request.getCreated());
+        dto.setItems(answers.stream()
+                .map(item -> new ItemRequestDto.Answer(item.getId(), item.getName(), item.getOwnerId()))
+                .collect(Collectors.toList()));
+        return dto;
+    }
+}
@@ -0,0 +1,13 @@
+package ru.practicum.shareit.request.service;
+
+import ru.practicum.shareit.request.dto.ItemRequestCreateDto;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+
+import java.util.List;
+
+public interface ItemRequestService {
+    ItemRequestDto createRequest(ItemRequestCreateDto requestCreateDto, Long requestorId);
+    List<ItemRequestDto> getOwnRequests(Long requestorId);
+    List<ItemRequestDto> getOtherRequests(Long userId, String cursor, Integer size);
+    ItemRequestDto getRequestById(Long requestId, Long userId);
+}
@@ -0,0 +1,93 @@
+package ru.practicum.shareit.request.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.cache.EntityCache;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemRepository;
+import ru.practicum.shareit.request.ItemRequest;
+import ru.practicum.shareit.request.ItemRequestRepository;
+import ru.practicum.shareit.request.dto.ItemRequestCreateDto;
+import ru.practicum.shareit.request.dto.ItemRequestCursor;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.mapper.ItemRequestMapper;
+import ru.practicum.shareit.user.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class ItemRequestServiceImpl implements ItemRequestService {
+
+    private final ItemRequestRepository requestRepository;
+    private final ItemRepository itemRepository;
+    private final EntityCache<User> userCache;
+
+    @Override
+    @Transactional
+    public ItemRequestDto createRequest(ItemRequestCreateDto requestCreateDto, Long requestorId) {
+        getUserById(requestorId);
+        ItemRequest request = requestRepository.save(new ItemRequest(null, requestCreateDto.getDescription(),
+                requestorId, LocalDateTime.now()));
+        return ItemRequestMapper.toDto(request, List.of());
+    }
+
+    @Override
+    public List<ItemRequestDto> getOwnRequests(Long requestorId) {
+        getUserById(requestorId);
+        return withAnswers(requestRepository.findByRequestorIdOrderByCreatedDescIdDesc(requestorId));
+    }
+
+    @Override
+    public List<ItemRequestDto> getOtherRequests(Long userId, String cursor, Integer size) {
+        if (size == null || size <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры пагинации");
+        }
+        getUserById(userId);
+        Pageable page = PageRequest.of(0, size);
+        List<ItemRequest> requests;
+        if (cursor == null || cursor.isBlank()) {
+            requests = requestRepository.findOthers(userId, page);
+        } else {
+            ItemRequestCursor after = ItemRequestCursor.decode(cursor);
+            requests = requestRepository.findOthersAfter(userId, after.created(), after.id(), page);
+        }
+        return withAnswers(requests);
+    }
+
+    @Override
+    public ItemRequestDto getRequestById(Long requestId, Long userId) {
+        getUserById(userId);
+        ItemRequest request = requestRepository.findById(requestId)
+                .orElseThrow(() -> new NoSuchElementException("Запрос с ID " + requestId + " не найден"));
+        return withAnswers(List.of(request)).get(0);
+    }
+
+    // Ответы на всю страницу запросов подбираются одним запросом по индексу items.request_id
+    private List<ItemRequestDto> withAnswers(List<ItemRequest> requests) {
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+        List<Long> requestIds = requests.stream()
+                .map(ItemRequest::getId)
+                .collect(Collectors.toList());
+        Map<Long, List<Item>> answers = itemRepository.findByRequestIdInOrderById(requestIds).stream()
+                .collect(Collectors.groupingBy(Item::getRequestId));
+        return requests.stream()
+                .map(request -> ItemRequestMapper.toDto(request, answers.getOrDefault(request.getId(), List.of())))
+                .collect(Collectors.toList());
+    }
+
+    private User getUserById(Long userId) {
+        return userCache.get(userId)
+                .orElseThrow(() -> new NoSuchElementException("Пользователь с ID " + userId + " не найден"));
+    }
+}
@@ -1,11 +1,24 @@
 package ru.practicum.shareit.user;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
+
+    @Query("select u.id from User u where u.id > ?1 order by u.id")
+    List<Long> findIdsAfter(Long id, Pageable pageable);
+
+    // Сериализует создание строк, привязанных к пользователю (счётчики бронирований)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from User u where u.id = ?1")
+    Optional<User> lockById(Long id);
 }
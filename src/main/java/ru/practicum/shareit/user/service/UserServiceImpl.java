@@ -2,7 +2,12 @@ package ru.practicum.shareit.user.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.cache.EntityCache;
 import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.item.model.CommentRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemRepository;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserRepository;
 import ru.practicum.shareit.user.dto.UserDto;
@@ -14,11 +19,17 @@ import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Transactional(readOnly = true)
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
+    private final EntityCache<User> userCache;
+    private final EntityCache<Item> itemCache;
+    private final ItemRepository itemRepository;
+    private final CommentRepository commentRepository;
 
     @Override
+    @Transactional
     public UserDto createUser(UserDto userDto) {
         User user = UserMapper.toUser(userDto);
         User savedUser = userRepository.save(user);
@@ -26,12 +37,20 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    @Transactional
     public UserDto updateUser(Long userId, UserDto userDto) {
         User existingUser = userRepository.findById(userId)
                 .orElseThrow(() -> new NoSuchElementException("Пользователь с ID " + userId + " не найден"));
 
-        if (userDto.getName() != null && !userDto.getName().isBlank()) {
+        if (userDto.getName() != null && !userDto.getName().isBlank()
+                && !userDto.getName().equals(existingUser.getName())) {
             existingUser.setName(userDto.getName());
+            // Имя автора входит в отзывы, а ETag вещи строится по её версии
+            List<Long> commentedItemIds = commentRepository.findItemIdsByAuthorId(userId);
+            if (!commentedItemIds.isEmpty()) {
+                itemRepository.incrementVersions(commentedItemIds);
+                commentedItemIds.forEach(itemCache::evict);
+            }
         }
         if (userDto.getEmail() != null && !userDto.getEmail().isBlank()) {
             // Проверка на уникальность email, если он изменился
@@ -45,12 +64,13 @@ public class UserServiceImpl implements UserService {
         }
 
         User updatedUser = userRepository.save(existingUser);
+        userCache.evict(userId);
         return UserMapper.toDto(updatedUser);
     }
 
     @Override
     public UserDto getUserById(Long userId) {
-        User user = userRepository.findById(userId)
+        User user = userCache.get(userId)
                 .orElseThrow(() -> new NoSuchElementException("Пользователь с ID " + userId + " не найден"));
         return UserMapper.toDto(user);
     }
@@ -63,7 +83,9 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    @Transactional
     public void deleteUser(Long userId) {
         userRepository.deleteById(userId);
+        userCache.evict(userId);
     }
 }
@@ -0,0 +1,8 @@
+-- Событие, которое подписчик не принял за shareit.outbox.max-attempts попыток, откладывается (parked_at)
+-- и больше не выбирается ретранслятором, пока его не вернут переигрыванием.
+
+alter table outbox_events add column parked_at timestamp(6);
+
+-- Очередь: published_at is null and parked_at is null, проход по возрастанию id
+drop index idx_outbox_events_published;
+create index idx_outbox_events_published on outbox_events (published_at, parked_at, id);
@@ -0,0 +1,3 @@
+-- Версия пользователя для ETag бронирования: имя и email арендатора входят в ответ, и их правка должна менять метку.
+
+alter table users add column version bigint default 0 not null;
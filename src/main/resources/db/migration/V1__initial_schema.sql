@@ -0,0 +1,45 @@
+-- Схема в том виде, в каком её создавал Hibernate по сущностям; существующие базы принимаются за эту версию
+create table users (
+    id    bigint generated by default as identity primary key,
+    name  varchar(255) not null,
+    email varchar(255) not null unique
+);
+
+create table items (
+    id          bigint generated by default as identity primary key,
+    name        varchar(255) not null,
+    description varchar(255) not null,
+    available   boolean      not null,
+    owner_id    bigint       not null,
+    request_id  bigint
+);
+
+create table bookings (
+    id         bigint generated by default as identity primary key,
+    start_date timestamp(6) not null,
+    end_date   timestamp(6) not null,
+    item_id    bigint       not null references items (id),
+    booker_id  bigint       not null references users (id),
+    status     varchar(255) not null check (status in ('WAITING', 'APPROVED', 'REJECTED', 'CANCELED'))
+);
+
+create table comments (
+    id        bigint generated by default as identity primary key,
+    text      varchar(255) not null,
+    item_id   bigint       not null references items (id),
+    author_id bigint       not null references users (id),
+    created   timestamp(6) not null
+);
+
+create table item_booking_pointers (
+    item_id         bigint primary key,
+    last_booking_id bigint,
+    last_booker_id  bigint,
+    last_start      timestamp(6),
+    last_end        timestamp(6),
+    next_booking_id bigint,
+    next_booker_id  bigint,
+    next_start      timestamp(6),
+    next_end        timestamp(6),
+    valid_until     timestamp(6)
+);
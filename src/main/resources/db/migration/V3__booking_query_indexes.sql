@@ -0,0 +1,17 @@
+-- Индексы под выборки BookingRepository. Ведущие столбцы — равенства из WHERE, последний — столбец
+-- сортировки или диапазона, чтобы страница читалась из индекса без полной сортировки.
+
+-- Бронирования пользователя: ALL/CURRENT/PAST/FUTURE упорядочены по start_date desc, WAITING/REJECTED ещё и по статусу
+create index idx_bookings_booker_start on bookings (booker_id, start_date desc);
+create index idx_bookings_booker_status_start on bookings (booker_id, status, start_date desc);
+
+-- Бронирования владельца: вещи владельца, затем их бронирования по вещи
+create index idx_items_owner on items (owner_id);
+create index idx_bookings_item_start on bookings (item_id, start_date desc);
+
+-- Последнее/следующее подтверждённое бронирование вещи и отзывы после аренды
+create index idx_bookings_item_status_end on bookings (item_id, status, end_date);
+create index idx_bookings_item_status_start on bookings (item_id, status, start_date);
+
+create index idx_comments_item on comments (item_id);
+create index idx_item_booking_pointers_valid_until on item_booking_pointers (valid_until);
@@ -0,0 +1,28 @@
+-- Группы FUTURE/CURRENT/PAST и владелец вещи прямо в bookings: выборки по состоянию читают
+-- страницу из индекса (пользователь или владелец, группа, start_date desc) без сравнения дат с now.
+
+alter table bookings add column owner_id bigint;
+alter table bookings add column phase varchar(16);
+
+update bookings b set owner_id = (select i.owner_id from items i where i.id = b.item_id);
+update bookings set phase = case
+    when start_date > localtimestamp then 'FUTURE'
+    when end_date > localtimestamp then 'CURRENT'
+    else 'PAST' end;
+
+alter table bookings alter column owner_id set not null;
+alter table bookings alter column phase set not null;
+alter table bookings add constraint fk_bookings_owner foreign key (owner_id) references users (id);
+alter table bookings add constraint chk_bookings_phase check (phase in ('FUTURE', 'CURRENT', 'PAST'));
+
+create index idx_bookings_booker_phase_start on bookings (booker_id, phase, start_date desc);
+
+-- Бронирования владельца теперь читаются без items; прежний индекс по вещи для них больше не нужен
+create index idx_bookings_owner_start on bookings (owner_id, start_date desc);
+create index idx_bookings_owner_status_start on bookings (owner_id, status, start_date desc);
+create index idx_bookings_owner_phase_start on bookings (owner_id, phase, start_date desc);
+drop index idx_bookings_item_start;
+
+-- Перенос между группами: только строки, чья граница уже прошла
+create index idx_bookings_phase_start on bookings (phase, start_date);
+create index idx_bookings_phase_end on bookings (phase, end_date);
@@ -0,0 +1,32 @@
+-- Счётчики бронирований по состояниям для каждого пользователя: как арендатора (BOOKER) и как владельца (OWNER).
+-- Заполняются из bookings; дальше их ведёт приложение, а расхождения исправляет сверка по расписанию.
+
+create table booking_counters (
+    user_id        bigint      not null references users (id),
+    role           varchar(16) not null check (role in ('BOOKER', 'OWNER')),
+    all_count      bigint      not null,
+    current_count  bigint      not null,
+    past_count     bigint      not null,
+    future_count   bigint      not null,
+    waiting_count  bigint      not null,
+    rejected_count bigint      not null,
+    primary key (user_id, role)
+);
+
+insert into booking_counters
+select booker_id, 'BOOKER', count(*),
+       sum(case when phase = 'CURRENT' then 1 else 0 end),
+       sum(case when phase = 'PAST' then 1 else 0 end),
+       sum(case when phase = 'FUTURE' then 1 else 0 end),
+       sum(case when status = 'WAITING' then 1 else 0 end),
+       sum(case when status = 'REJECTED' then 1 else 0 end)
+from bookings group by booker_id;
+
+insert into booking_counters
+select owner_id, 'OWNER', count(*),
+       sum(case when phase = 'CURRENT' then 1 else 0 end),
+       sum(case when phase = 'PAST' then 1 else 0 end),
+       sum(case when phase = 'FUTURE' then 1 else 0 end),
+       sum(case when status = 'WAITING' then 1 else 0 end),
+       sum(case when status = 'REJECTED' then 1 else 0 end)
+from bookings group by owner_id;
@@ -0,0 +1,6 @@
+-- Версии строк для оптимистичных проверок и ETag: растут при каждом изменении сущности через JPA.
+-- Отзывы не редактируются, поэтому их добавление сдвигает версию вещи, а не только появляется строкой в comments.
+
+alter table items add column version bigint default 0 not null;
+alter table bookings add column version bigint default 0 not null;
+alter table comments add column version bigint default 0 not null;
@@ -0,0 +1,10 @@
+-- Число отзывов вещи хранится в самой вещи и растёт вместе с добавлением отзыва,
+-- чтобы карточка показывала его без подсчёта по comments.
+
+alter table items add column comment_count bigint default 0 not null;
+
+update items i set comment_count = (select count(*) from comments c where c.item_id = i.id);
+
+-- Первая страница отзывов и продолжение по курсору: (created desc, id desc) внутри вещи.
+-- idx_comments_item остаётся: H2 закрепил его за внешним ключом comments.item_id
+create index idx_comments_item_created on comments (item_id, created desc, id desc);
@@ -0,0 +1,20 @@
+-- Запросы на вещи. request_id у вещей существовал и раньше, но запросов не было, поэтому старые значения сбрасываются
+-- перед внешним ключом.
+
+create table item_requests (
+    id           bigint primary key,
+    description  varchar(255) not null,
+    requestor_id bigint       not null references users (id),
+    created      timestamp(6) not null
+);
+
+create sequence item_requests_seq start with 1 increment by 50;
+
+-- Свои запросы автора и общая лента, обе по (created desc, id desc)
+create index idx_item_requests_requestor on item_requests (requestor_id, created desc, id desc);
+create index idx_item_requests_created on item_requests (created desc, id desc);
+
+-- Ответы на страницу запросов подбираются одним запросом по request_id in (...)
+update items set request_id = null where request_id is not null;
+create index idx_items_request on items (request_id);
+alter table items add constraint fk_items_request foreign key (request_id) references item_requests (id);
@@ -0,0 +1,20 @@
+-- Транзакционный outbox: события пишутся в одной транзакции с изменением, ретранслятор доставляет их
+-- подписчикам внутри процесса. Доставленные строки хранятся до очистки, чтобы их можно было переиграть.
+
+create table outbox_events (
+    id             bigint primary key,
+    aggregate_type varchar(50)   not null,
+    aggregate_id   bigint        not null,
+    event_type     varchar(50)   not null,
+    payload        varchar(2000) not null,
+    created        timestamp(6)  not null,
+    published_at   timestamp(6),
+    attempts       int default 0 not null
+);
+
+create sequence outbox_events_seq start with 1 increment by 50;
+
+-- Очередь недоставленных (published_at is null order by id) и очистка по published_at
+create index idx_outbox_events_published on outbox_events (published_at, id);
+-- Переигрывание с момента времени
+create index idx_outbox_events_created on outbox_events (created);
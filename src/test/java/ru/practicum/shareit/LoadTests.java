@@ -0,0 +1,327 @@
+package ru.practicum.shareit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import com.zaxxer.hikari.HikariDataSource;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.concurrency.DatabaseBulkhead;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemRepository;
+import ru.practicum.shareit.notification.NotificationBus;
+import ru.practicum.shareit.reactive.ReactiveDatabase;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Сравнение пропускной способности и p99 на платформенных и виртуальных потоках.
+ * Второй тест сравнивает блокирующее и реактивное чтение при большом числе одновременных клиентов
+ * ({@code -Dload.clients}, по умолчанию 10 000): пик потоков JVM и занятых соединений с базой.
+ * Третий держит открытыми потоки уведомлений ({@code -Dload.sse.clients}, по умолчанию 5 000) и замеряет пик
+ * потоков и время доставки одного события всем. Клиент работает в той же JVM и с одного адреса, поэтому
+ * 50 000 соединений требуют {@code ulimit -n} больше 100 000 и расширенного диапазона локальных портов.
+ * Запускается профилем load: {@code mvn test -Pload}.
+ */
+@Tag("load")
+class LoadTests {
+
+    private static final int CLIENTS = 256;
+    private static final int REQUESTS = 10_000;
+    private static final int ITEMS = 50;
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+    private static final int MANY_CLIENTS = Integer.getInteger("load.clients", 10_000);
+    private static final int SSE_CLIENTS = Integer.getInteger("load.sse.clients", 5_000);
+
+    @Test
+    void compareTomcatOnPlatformAndVirtualThreads() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+        System.out.printf("%-10s %12s %10s%n", "mode", "req/s", "p99, ms");
+        System.out.printf("%-10s %12.0f %10.1f%n", "platform", platform.throughput(), platform.p99Millis());
+        System.out.printf("%-10s %12.0f %10.1f%n", "virtual", virtual.throughput(), virtual.p99Millis());
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        // Аргументы командной строки, чтобы перекрыть application.properties
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ShareItApp.class).run(
+                "--server.port=0",
+                "--server.tomcat.threads.max=32",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--spring.datasource.url=jdbc:h2:mem:load-" + virtualThreads,
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework.transaction.interceptor=WARN",
+                "--logging.level.org.springframework.orm.jpa.JpaTransactionManager=WARN")) {
+            DataSource dataSource = context.getBean(DataSource.class);
+            assertEquals(virtualThreads, dataSource instanceof DatabaseBulkhead);
+            Users users = seed(context);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            Result result = fire(requests(port, "", users), CLIENTS, REQUESTS);
+            if (dataSource instanceof DatabaseBulkhead bulkhead) {
+                assertEquals(0, bulkhead.getInUse());
+            }
+            return result;
+        }
+    }
+
+    private Users seed(ConfigurableApplicationContext context) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        ItemRepository itemRepository = context.getBean(ItemRepository.class);
+        BookingRepository bookingRepository = context.getBean(BookingRepository.class);
+        User owner = userRepository.save(new User(null, "Владелец", "owner@load.ru"));
+        User booker = userRepository.save(new User(null, "Арендатор", "booker@load.ru"));
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < ITEMS; i++) {
+            Item item = itemRepository.save(new Item(null, "Дрель " + i, "Аккумуляторная дрель", true,
+                    owner.getId(), null));
+            for (int j = 0; j < 4; j++) {
+                LocalDateTime start = now.plusDays(j * 2L - 3);
+                bookingRepository.save(new Booking(null, start, start.plusDays(1), item, booker, BookingStatus.APPROVED));
+            }
+        }
+        return new Users(owner.getId(), booker.getId());
+    }
+
+    @Test
+    void compareBlockingAndReactiveReads() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ShareItApp.class).run(
+                "--server.port=0",
+                "--server.tomcat.threads.max=200",
+                "--server.tomcat.max-connections=" + (MANY_CLIENTS + 100),
+                "--spring.datasource.url=jdbc:h2:mem:load-reactive",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework.transaction.interceptor=WARN",
+                "--logging.level.org.springframework.orm.jpa.JpaTransactionManager=WARN")) {
+            HikariDataSource hikari = context.getBean(DataSource.class).unwrap(HikariDataSource.class);
+            ReactiveDatabase reactiveDatabase = context.getBean(ReactiveDatabase.class);
+            Users users = seed(context);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            int requestCount = Math.max(REQUESTS, MANY_CLIENTS);
+
+            Peaks blockingPeaks = new Peaks(() -> hikari.getHikariPoolMXBean().getActiveConnections());
+            Result blocking;
+            try (blockingPeaks) {
+                blocking = fire(requests(port, "", users), MANY_CLIENTS, requestCount);
+            }
+            Peaks reactivePeaks = new Peaks(reactiveDatabase::getAcquired);
+            Result reactive;
+            try (reactivePeaks) {
+                reactive = fire(requests(port, "/reactive", users), MANY_CLIENTS, requestCount);
+            }
+            System.out.printf("clients: %d, requests: %d%n", MANY_CLIENTS, requestCount);
+            System.out.printf("%-10s %12s %10s %10s %12s%n", "api", "req/s", "p99, ms", "threads", "connections");
+            System.out.printf("%-10s %12.0f %10.1f %10d %12d%n", "blocking", blocking.throughput(),
+                    blocking.p99Millis(), blockingPeaks.threads(), blockingPeaks.connections());
+            System.out.printf("%-10s %12.0f %10.1f %10d %12d%n", "reactive", reactive.throughput(),
+                    reactive.p99Millis(), reactivePeaks.threads(), reactivePeaks.connections());
+        }
+    }
+
+    @Test
+    void holdIdleNotificationStreams() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ShareItApp.class).run(
+                "--server.port=0",
+                "--server.tomcat.threads.max=200",
+                "--server.tomcat.max-connections=" + (SSE_CLIENTS + 100),
+                "--shareit.notifications.heartbeat-interval=PT1S",
+                "--spring.datasource.url=jdbc:h2:mem:load-sse",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework.transaction.interceptor=WARN",
+                "--logging.level.org.springframework.orm.jpa.JpaTransactionManager=WARN")) {
+            NotificationBus bus = context.getBean(NotificationBus.class);
+            Users users = seed(context);
+            Item item = context.getBean(ItemRepository.class).findByOwnerId(users.owner()).getFirst();
+            LocalDateTime start = LocalDateTime.now().plusYears(1);
+            Booking waiting = context.getBean(BookingRepository.class).save(new Booking(null, start,
+                    start.plusDays(1), item, context.getBean(UserRepository.class).findById(users.booker()).orElseThrow(),
+                    BookingStatus.WAITING));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpRequest stream = get("http://localhost:" + port + "/notifications", users.booker());
+
+            CountDownLatch delivered = new CountDownLatch(SSE_CLIENTS);
+            ExecutorService clientThreads = Executors.newFixedThreadPool(4);
+            HttpClient http = HttpClient.newBuilder().executor(clientThreads).build();
+            Peaks peaks = new Peaks(bus::getSubscriberCount);
+            long deliveryNanos;
+            try (peaks) {
+                for (int c = 0; c < SSE_CLIENTS; c++) {
+                    http.sendAsync(stream, HttpResponse.BodyHandlers.fromLineSubscriber(new EventCounter(delivered)));
+                }
+                long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(2);
+                while (bus.getSubscriberCount() < SSE_CLIENTS && System.nanoTime() < deadline) {
+                    Thread.sleep(50);
+                }
+                assertEquals(SSE_CLIENTS, bus.getSubscriberCount());
+                // Несколько пульсов по всем соединениям, пока клиенты простаивают
+                Thread.sleep(3_000);
+
+                long published = System.nanoTime();
+                context.getBean(BookingService.class).approveBooking(waiting.getId(), true, users.owner());
+                assertTrue(delivered.await(1, TimeUnit.MINUTES), "Не доставлено: " + delivered.getCount());
+                deliveryNanos = System.nanoTime() - published;
+            } finally {
+                http.shutdownNow();
+                clientThreads.shutdownNow();
+            }
+            System.out.printf("%12s %10s %14s%n", "streams", "threads", "delivery, ms");
+            System.out.printf("%12d %10d %14.1f%n", peaks.connections(), peaks.threads(), deliveryNanos / 1e6);
+        }
+    }
+
+    private List<HttpRequest> requests(int port, String prefix, Users users) {
+        String base = "http://localhost:" + port + prefix;
+        return List.of(
+                get(base + "/items/search?text=" + URLEncoder.encode("дрель", StandardCharsets.UTF_8) + "&size=20",
+                        users.booker()),
+                get(base + "/items", users.owner()),
+                get(base + "/bookings?size=20", users.booker()),
+                get(base + "/bookings/owner?state=PAST&size=20", users.owner()));
+    }
+
+    private Result fire(List<HttpRequest> requests, int clientCount, int requestCount) throws Exception {
+        long[] latencies = new long[requestCount];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder().executor(clients).build()) {
+            long started = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < clientCount; c++) {
+                futures.add(clients.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < requestCount; i = next.getAndIncrement()) {
+                        long begin = System.nanoTime();
+                        HttpResponse<Void> response = http.send(requests.get(i % requests.size()),
+                                HttpResponse.BodyHandlers.discarding());
+                        latencies[i] = System.nanoTime() - begin;
+                        if (response.statusCode() != 200) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long elapsed = System.nanoTime() - started;
+            assertTrue(failed.get() == 0, "Неуспешных ответов: " + failed.get());
+            Arrays.sort(latencies);
+            return new Result(requestCount * 1e9 / elapsed, latencies[(int) (requestCount * 0.99) - 1] / 1e6);
+        }
+    }
+
+    private static HttpRequest get(String uri, Long userId) {
+        return HttpRequest.newBuilder(URI.create(uri)).header(USER_HEADER, userId.toString()).GET().build();
+    }
+
+    /**
+     * Фоново замеряет пик потоков JVM и занятых соединений, пока идёт прогон.
+     */
+    private static class Peaks implements AutoCloseable {
+
+        private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        private final AtomicInteger connections = new AtomicInteger();
+        private final Thread sampler;
+        private volatile boolean running = true;
+
+        Peaks(IntSupplier inUse) {
+            threadBean.resetPeakThreadCount();
+            sampler = Thread.ofPlatform().daemon().start(() -> {
+                while (running) {
+                    connections.accumulateAndGet(inUse.getAsInt(), Math::max);
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+        }
+
+        int threads() {
+            return threadBean.getPeakThreadCount();
+        }
+
+        int connections() {
+            return connections.get();
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            running = false;
+            sampler.join();
+        }
+    }
+
+    /**
+     * Читает поток построчно и отмечает первое событие о бронировании.
+     */
+    private static class EventCounter implements Flow.Subscriber<String> {
+
+        private final CountDownLatch delivered;
+        private boolean counted;
+
+        EventCounter(CountDownLatch delivered) {
+            this.delivered = delivered;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (!counted && line.equals("event:booking")) {
+                counted = true;
+                delivered.countDown();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    private record Users(Long owner, Long booker) {
+    }
+
+    private record Result(double throughput, double p99Millis) {
+    }
+}
@@ -0,0 +1,391 @@
+package ru.practicum.shareit.booking;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import ru.practicum.shareit.booking.dto.BookingApprovalDto;
+import ru.practicum.shareit.booking.dto.BookingCreateDto;
+import ru.practicum.shareit.booking.service.BookingCountersService;
+import ru.practicum.shareit.booking.service.BookingPhaseRoller;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemRepository;
+import ru.practicum.shareit.item.service.ItemBookingPointersService;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Перенос фаз и ретранслятор outbox по расписанию отключены: их запросы попадали бы в общую статистику Hibernate
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "shareit.booking-phases.roll-interval=PT1H",
+        "shareit.outbox.poll-interval=PT1H",
+        "shareit.outbox.relay-on-commit=false"
+})
+@AutoConfigureMockMvc
+class BookingControllerTests {
+
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+    private static final int BOOKINGS = 10;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private BookingCountersService countersService;
+    @Autowired
+    private BookingCountersRepository countersRepository;
+    @Autowired
+    private BookingPhaseRoller phaseRoller;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private ItemBookingPointersService pointersService;
+
+    private User owner;
+    private User booker;
+    private Booking waiting;
+
+    @BeforeEach
+    void setUp() {
+        owner = createUser();
+        booker = createUser();
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        for (int i = 0; i < BOOKINGS; i++) {
+            // Каждое бронирование на своей вещи, чтобы ленивые связи не закрывались кэшем сессии
+            Item item = itemRepository.save(new Item(null, "Вещь " + i, "Описание", true, owner.getId(), null));
+            // Как и при создании вещи через сервис: строка указателей есть, подтверждение её не пересчитывает
+            pointersService.initialize(item.getId());
+            waiting = bookingRepository.save(new Booking(null, start.plusDays(i), start.plusDays(i).plusHours(1),
+                    item, booker, BookingStatus.WAITING));
+        }
+        // Бронирования сохранены в обход сервиса: сверка заводит для пользователей строки счётчиков
+        countersService.reconcile();
+    }
+
+    @Test
+    void bookingReadsRunBoundedNumberOfStatements() throws Exception {
+        assertStatementsAtMost(2, get("/bookings").header(USER_HEADER, booker.getId()).param("size", "10"));
+        assertStatementsAtMost(2, get("/bookings").header(USER_HEADER, booker.getId()).param("state", "FUTURE"));
+        assertStatementsAtMost(2, get("/bookings").header(USER_HEADER, booker.getId()).param("cursor", ""));
+        assertStatementsAtMost(2, get("/bookings/owner").header(USER_HEADER, owner.getId()).param("state", "WAITING"));
+        assertStatementsAtMost(2, get("/bookings/owner").header(USER_HEADER, owner.getId()).param("cursor", ""));
+        assertStatementsAtMost(1, get("/bookings/{id}", waiting.getId()).header(USER_HEADER, booker.getId()));
+        // Подтверждение: условное обновление статуса и чтение бронирования (2), счётчики арендатора и владельца (2),
+        // событие в outbox (1, и раз в allocationSize ещё выборка из последовательности), указатели вещи —
+        // чтение строки и одно условное обновление (2)
+        assertStatementsAtMost(8, patch("/bookings/{id}", waiting.getId()).header(USER_HEADER, owner.getId())
+                .param("approved", "true"));
+    }
+
+    @Test
+    void cursorAndOffsetPagesCoverBookingsWithoutDuplicatesOrGaps() throws Exception {
+        User tenant = createUser();
+        User lender = createUser();
+        LocalDateTime start = LocalDateTime.now().plusDays(60).withNano(0);
+        List<Booking> saved = new ArrayList<>();
+        // По три бронирования с одинаковым началом: внутри группы порядок задаёт id
+        for (int i = 0; i < 7; i++) {
+            Item item = itemRepository.save(new Item(null, "Вещь", "Описание", true, lender.getId(), null));
+            LocalDateTime from = start.plusDays(i / 3);
+            saved.add(bookingRepository.save(new Booking(null, from, from.plusHours(1), item, tenant,
+                    BookingStatus.WAITING)));
+        }
+        List<Long> expected = saved.stream()
+                .sorted(Comparator.comparing(Booking::getStart).thenComparing(Booking::getId).reversed())
+                .map(Booking::getId)
+                .toList();
+
+        for (String path : List.of("/bookings", "/bookings/owner")) {
+            Long userId = path.equals("/bookings") ? tenant.getId() : lender.getId();
+            for (int size = 1; size <= expected.size() + 1; size++) {
+                List<Long> listed = new ArrayList<>();
+                int pages = 0;
+                String cursor = "";
+                do {
+                    MockHttpServletResponse response = mockMvc.perform(get(path).header(USER_HEADER, userId)
+                                    .param("cursor", cursor).param("size", String.valueOf(size)))
+                            .andExpect(status().isOk())
+                            .andReturn().getResponse();
+                    List<Long> page = idsOf(response);
+                    cursor = response.getHeader(BookingController.NEXT_CURSOR_HEADER);
+                    if (cursor != null) {
+                        assertEquals(size, page.size());
+                    }
+                    listed.addAll(page);
+                    pages++;
+                } while (cursor != null);
+                assertEquals(expected, listed, path + " size " + size);
+                // Курсор кончается на последней странице с данными, даже полной: пустой страницы в конце нет
+                assertEquals((expected.size() + size - 1) / size, pages, path + " size " + size);
+            }
+
+            // Смещение, не кратное размеру страницы, не округляется до её границы
+            for (int from = 0; from <= expected.size(); from++) {
+                for (int size = 1; size <= 4; size++) {
+                    MockHttpServletResponse response = mockMvc.perform(get(path).header(USER_HEADER, userId)
+                                    .param("from", String.valueOf(from)).param("size", String.valueOf(size)))
+                            .andExpect(status().isOk())
+                            .andReturn().getResponse();
+                    assertEquals(expected.subList(from, Math.min(expected.size(), from + size)), idsOf(response),
+                            path + " from " + from + " size " + size);
+                }
+            }
+        }
+        mockMvc.perform(get("/bookings").header(USER_HEADER, tenant.getId()).param("cursor", "").param("size", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void batchEndpointsReportResultPerEntry() throws Exception {
+        Item first = itemRepository.save(new Item(null, "Пакетная вещь", "Описание", true, owner.getId(), null));
+        Item second = itemRepository.save(new Item(null, "Пакетная вещь", "Описание", true, owner.getId(), null));
+        LocalDateTime start = LocalDateTime.now().plusDays(30).withNano(0);
+        List<BookingCreateDto> create = List.of(
+                new BookingCreateDto(first.getId(), start, start.plusHours(2)),
+                new BookingCreateDto(first.getId(), start.plusHours(1), start.plusHours(3)),
+                new BookingCreateDto(Long.MAX_VALUE, start, start.plusHours(1)),
+                new BookingCreateDto(second.getId(), start.plusHours(1), start),
+                new BookingCreateDto(second.getId(), start, start.plusHours(1)));
+
+        String created = mockMvc.perform(post("/bookings/batch").header(USER_HEADER, booker.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(create)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].status").value(contains(201, 409, 404, 400, 201)))
+                .andExpect(jsonPath("$[1].error").exists())
+                .andReturn().getResponse().getContentAsString();
+        Long firstId = objectMapper.readTree(created).get(0).at("/booking/id").asLong();
+        Long secondId = objectMapper.readTree(created).get(4).at("/booking/id").asLong();
+
+        List<BookingApprovalDto> approve = List.of(
+                new BookingApprovalDto(firstId, true),
+                new BookingApprovalDto(secondId, false),
+                new BookingApprovalDto(firstId, true),
+                new BookingApprovalDto(Long.MAX_VALUE, true),
+                new BookingApprovalDto(waiting.getId(), true));
+        mockMvc.perform(patch("/bookings/batch").header(USER_HEADER, owner.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(approve)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].status").value(contains(200, 200, 400, 404, 200)))
+                .andExpect(jsonPath("$[0].booking.status").value("APPROVED"))
+                .andExpect(jsonPath("$[1].booking.status").value("REJECTED"));
+        // Повторное решение по уже обработанному бронированию — конфликт, как и в одиночном запросе
+        mockMvc.perform(patch("/bookings/batch").header(USER_HEADER, owner.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(new BookingApprovalDto(firstId, false)))))
+                .andExpect(jsonPath("$[0].status").value(409));
+        mockMvc.perform(patch("/bookings/{id}", firstId).header(USER_HEADER, owner.getId()).param("approved", "false"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void exportStreamsWholeHistoryAsNdjson() throws Exception {
+        MvcResult started = mockMvc.perform(get("/bookings/export").header(USER_HEADER, booker.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> lines = body.lines().toList();
+        assertEquals(BOOKINGS, lines.size());
+        // Новые сверху, как и в постраничной выдаче
+        assertEquals(waiting.getId(), objectMapper.readTree(lines.get(0)).get("id").asLong());
+
+        mockMvc.perform(get("/bookings/owner/export").header(USER_HEADER, owner.getId()).param("state", "UNKNOWN"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/bookings/export").header(USER_HEADER, Long.MAX_VALUE))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void summaryFollowsCreateDecideAndRollForward() throws Exception {
+        Item item = itemRepository.save(new Item(null, "Вещь для сводки", "Описание", true, owner.getId(), null));
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        List<BookingCreateDto> create = List.of(
+                new BookingCreateDto(item.getId(), now.minusDays(3), now.minusDays(2)),
+                new BookingCreateDto(item.getId(), now.minusHours(1), now.plusHours(1)),
+                new BookingCreateDto(item.getId(), now.plusDays(60), now.plusDays(61)));
+        String created = mockMvc.perform(post("/bookings/batch").header(USER_HEADER, booker.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(create)))
+                .andExpect(jsonPath("$[*].status").value(contains(201, 201, 201)))
+                .andReturn().getResponse().getContentAsString();
+        Long pastId = objectMapper.readTree(created).get(0).at("/booking/id").asLong();
+        Long futureId = objectMapper.readTree(created).get(2).at("/booking/id").asLong();
+        mockMvc.perform(patch("/bookings/{id}", pastId).header(USER_HEADER, owner.getId()).param("approved", "false"))
+                .andExpect(status().isOk());
+        mockMvc.perform(patch("/bookings/batch").header(USER_HEADER, owner.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(new BookingApprovalDto(futureId, true)))))
+                .andExpect(jsonPath("$[0].status").value(200));
+        // Будущее бронирование уже закончилось, но ещё числится в FUTURE: перенос сдвигает и счётчики
+        Booking future = bookingRepository.findById(futureId).orElseThrow();
+        future.setStart(now.minusDays(5));
+        future.setEnd(now.minusDays(4));
+        bookingRepository.save(future);
+        phaseRoller.rollForward();
+
+        assertSummaryMatchesListings("/bookings/summary", booker.getId(), false);
+        assertSummaryMatchesListings("/bookings/owner/summary", owner.getId(), true);
+        mockMvc.perform(get("/bookings/owner/summary").header(USER_HEADER, owner.getId()))
+                .andExpect(jsonPath("$.ALL").value(BOOKINGS + 3))
+                .andExpect(jsonPath("$.PAST").value(2))
+                .andExpect(jsonPath("$.REJECTED").value(1));
+
+        // Сверка находит и исправляет испорченную строку
+        BookingCounters counters = countersRepository.findById(
+                new BookingCounters.Key(owner.getId(), BookingCounters.Role.OWNER)).orElseThrow();
+        counters.setWaitingCount(counters.getWaitingCount() + 7);
+        countersRepository.save(counters);
+        assertEquals(1, countersService.reconcile());
+        assertSummaryMatchesListings("/bookings/owner/summary", owner.getId(), true);
+        mockMvc.perform(get("/bookings/summary").header(USER_HEADER, Long.MAX_VALUE))
+                .andExpect(status().isNotFound());
+    }
+
+    private void assertSummaryMatchesListings(String path, Long userId, boolean owner) throws Exception {
+        String body = mockMvc.perform(get(path).header(USER_HEADER, userId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        for (BookingState state : BookingState.values()) {
+            int listed = (owner
+                    ? bookingService.getOwnerBookings(state.name(), userId, 0, 1000, null)
+                    : bookingService.getUserBookings(state.name(), userId, 0, 1000, null)).size();
+            assertEquals(listed, objectMapper.readTree(body).get(state.name()).asLong(), path + " " + state);
+        }
+    }
+
+    @Test
+    void conditionalGetsAnswerNotModifiedUntilResourceChanges() throws Exception {
+        String bookingTag = etagOf(get("/bookings/{id}", waiting.getId()).header(USER_HEADER, booker.getId()));
+        mockMvc.perform(get("/bookings/{id}", waiting.getId()).header(USER_HEADER, booker.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, bookingTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(patch("/bookings/{id}", waiting.getId()).header(USER_HEADER, owner.getId())
+                        .param("approved", "true"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/bookings/{id}", waiting.getId()).header(USER_HEADER, booker.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, bookingTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(bookingTag)))
+                .andExpect(jsonPath("$.status").value("APPROVED"));
+
+        // Правка арендатора сдвигает его версию, а с ней и метку бронирования
+        String approvedTag = etagOf(get("/bookings/{id}", waiting.getId()).header(USER_HEADER, booker.getId()));
+        long bookerVersion = userRepository.findById(booker.getId()).orElseThrow().getVersion();
+        assertTrue(approvedTag.endsWith("-" + bookerVersion + "\""), approvedTag);
+        mockMvc.perform(patch("/users/{id}", booker.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Новое имя\"}"))
+                .andExpect(status().isOk());
+        assertEquals(bookerVersion + 1, userRepository.findById(booker.getId()).orElseThrow().getVersion());
+        mockMvc.perform(get("/bookings/{id}", waiting.getId()).header(USER_HEADER, booker.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, approvedTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(approvedTag)))
+                .andExpect(jsonPath("$.booker.name").value("Новое имя"));
+
+        Long itemId = waiting.getItem().getId();
+        String ownerTag = etagOf(get("/items/{id}", itemId).header(USER_HEADER, owner.getId()));
+        String bookerTag = etagOf(get("/items/{id}", itemId).header(USER_HEADER, booker.getId()));
+        assertNotEquals(ownerTag, bookerTag);
+
+        // Неизменённая вещь отвечает 304 по версии из кэша и указателям, не читая отзывы и бронирования
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(get("/items/{id}", itemId).header(USER_HEADER, owner.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, ownerTag))
+                .andExpect(status().isNotModified());
+        assertTrue(statistics.getPrepareStatementCount() <= 1);
+
+        mockMvc.perform(patch("/items/{id}", itemId).header(USER_HEADER, owner.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\": \"Новое описание\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/items/{id}", itemId).header(USER_HEADER, booker.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, bookerTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.description").value("Новое описание"));
+    }
+
+    private List<Long> idsOf(MockHttpServletResponse response) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode booking : objectMapper.readTree(response.getContentAsString(StandardCharsets.UTF_8))) {
+            ids.add(booking.get("id").asLong());
+        }
+        return ids;
+    }
+
+    private String etagOf(RequestBuilder request) throws Exception {
+        String etag = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+
+    private void assertStatementsAtMost(long limit, RequestBuilder request) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").exists());
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(statements <= limit, "Ожидалось не больше " + limit + " запросов, выполнено " + statements);
+    }
+
+    private User createUser() {
+        String name = UUID.randomUUID().toString();
+        return userRepository.save(new User(null, name, name + "@mail.ru"));
+    }
+}
@@ -0,0 +1,135 @@
+package ru.practicum.shareit.booking;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.dto.BookingCursor;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Планы запросов бронирований по всем BookingState: ни одна выборка не должна читать таблицу целиком.
+ * Проверяется планировщик H2 по EXPLAIN; маркер полного просмотра в нём — «tableScan».
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "ru.practicum.shareit.booking.BookingQueryPlanTests$CapturingInspector")
+class BookingQueryPlanTests {
+
+    private static final String TABLE_SCAN = "tableScan";
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void bookingStateQueriesUseIndexes() throws Exception {
+        List<User> owners = List.of(createUser(), createUser(), createUser());
+        List<User> bookers = List.of(createUser(), createUser(), createUser());
+        LocalDateTime now = LocalDateTime.now();
+        List<Booking> bookings = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            Item item = itemRepository.save(new Item(null, "Вещь " + i, "Описание", true,
+                    owners.get(i % owners.size()).getId(), null));
+            for (int j = 0; j < 5; j++) {
+                LocalDateTime start = now.plusDays(j * 3L - 6);
+                bookings.add(new Booking(null, start, start.plusDays(2), item, bookers.get(j % bookers.size()),
+                        BookingStatus.values()[j % 3]));
+            }
+        }
+        bookingRepository.saveAll(bookings);
+        execute("analyze");
+
+        Long ownerId = owners.get(0).getId();
+        Long bookerId = bookers.get(0).getId();
+        for (BookingState state : BookingState.values()) {
+            String name = state.name();
+            assertNoTableScan("user " + name, () -> bookingService.getUserBookings(name, bookerId, 0, 5, null));
+            assertNoTableScan("owner " + name, () -> bookingService.getOwnerBookings(name, ownerId, 0, 5, null));
+            assertNoTableScan("user cursor " + name, () -> bookingService.getUserBookings(name, bookerId, 0, 5,
+                    cursorAfterFirst(bookingService.getUserBookings(name, bookerId, 0, 1, null))));
+            assertNoTableScan("owner cursor " + name, () -> bookingService.getOwnerBookings(name, ownerId, 0, 5,
+                    cursorAfterFirst(bookingService.getOwnerBookings(name, ownerId, 0, 1, null))));
+        }
+    }
+
+    private void assertNoTableScan(String query, Supplier<List<BookingResponseDto>> call) throws Exception {
+        CapturingInspector.SQL.clear();
+        call.get();
+        List<String> statements = CapturingInspector.SQL.stream()
+                .filter(sql -> sql.contains("bookings"))
+                .toList();
+        assertFalse(statements.isEmpty(), "Не перехвачен запрос к bookings: " + query);
+        for (String sql : statements) {
+            String plan = explain(sql);
+            assertTrue(!plan.contains(TABLE_SCAN), "Полный просмотр таблицы в запросе " + query + ":\n" + plan);
+        }
+    }
+
+    // Курсор нужен, чтобы проверить и ветку с условием (start, id) < курсора
+    private static String cursorAfterFirst(List<BookingResponseDto> page) {
+        return page.isEmpty() ? "" : BookingCursor.after(page.get(0)).encode();
+    }
+
+    // Параметры в EXPLAIN не влияют на выбор индекса в H2, поэтому подставляются NULL
+    private String explain(String sql) throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("explain " + sql)) {
+            int parameters = statement.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameters; i++) {
+                statement.setObject(i, null);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+
+    private void execute(String sql) throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private User createUser() {
+        String name = UUID.randomUUID().toString();
+        return userRepository.save(new User(null, name, name + "@mail.ru"));
+    }
+
+    public static class CapturingInspector implements StatementInspector {
+        static final List<String> SQL = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            SQL.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,489 @@
+package ru.practicum.shareit.booking;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.BookingApprovalDto;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingCreateDto;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.service.BookingOverlapGuard;
+import ru.practicum.shareit.booking.service.BookingPhaseRoller;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.exception.GlobalExceptionHandler;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemRepository;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+// Тест переносит фазы сам: параллельный запуск по расписанию брал бы те же строки под блокировку
+@SpringBootTest(properties = "shareit.booking-phases.roll-interval=PT1H")
+@AutoConfigureMockMvc
+class BookingServiceImplTests {
+
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+    private static final int REQUESTS = 2000;
+    private static final int THREADS = 32;
+    private static final int DECIDERS = 8;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private BookingPhaseRoller phaseRoller;
+    @Autowired
+    private ItemService itemService;
+    @Autowired
+    private BookingCountersRepository countersRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private BookingOverlapGuard overlapGuard;
+
+    @Test
+    void concurrentCreateBookingNeverDoubleBooksItem() throws Exception {
+        User owner = createUser();
+        List<User> bookers = List.of(createUser(), createUser(), createUser(), createUser());
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            items.add(itemRepository.save(new Item(null, "Вещь " + i, "Описание", true, owner.getId(), null)));
+        }
+        LocalDateTime base = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.HOURS);
+
+        // Через HTTP: ответ на каждый запрос — ровно 201 или 409, а не только отсутствие пересечений в базе
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    Item item = items.get(random.nextInt(items.size()));
+                    User booker = bookers.get(random.nextInt(bookers.size()));
+                    LocalDateTime start = base.plusHours(random.nextInt(500));
+                    BookingCreateDto dto = new BookingCreateDto(item.getId(), start, start.plusHours(1 + random.nextInt(24)));
+                    int code = mockMvc.perform(post("/bookings").header(USER_HEADER, booker.getId())
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(objectMapper.writeValueAsString(dto)))
+                            .andReturn().getResponse().getStatus();
+                    assertTrue(code == 201 || code == 409, "Неожиданный статус " + code);
+                    (code == 201 ? created : rejected).incrementAndGet();
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(REQUESTS, created.get() + rejected.get());
+        assertTrue(rejected.get() > 0);
+        int stored = 0;
+        for (Item item : items) {
+            List<Booking> bookings = new ArrayList<>(bookingRepository.findByItemIdAndStatusInAndEndAfter(item.getId(),
+                    List.of(BookingStatus.WAITING, BookingStatus.APPROVED), base));
+            bookings.sort(Comparator.comparing(Booking::getStart));
+            for (int i = 1; i < bookings.size(); i++) {
+                assertFalse(bookings.get(i).getStart().isBefore(bookings.get(i - 1).getEnd()),
+                        "Пересекающиеся бронирования для вещи " + item.getId());
+            }
+            stored += bookings.size();
+        }
+        assertEquals(created.get(), stored);
+    }
+
+    @Test
+    void concurrentDecisionsHaveExactlyOneWinner() throws Exception {
+        User owner = createUser();
+        User booker = createUser();
+        Item item = itemRepository.save(new Item(null, "Вещь", "Описание", true, owner.getId(), null));
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        List<Long> bookingIds = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            bookingIds.add(bookingService.createBooking(new BookingCreateDto(item.getId(),
+                    start.plusDays(i), start.plusDays(i).plusHours(1)), booker.getId()).getId());
+        }
+
+        // Одновременные подтверждения и отказы: решение принимает ровно один, остальные получают 409
+        ExecutorService executor = Executors.newFixedThreadPool(DECIDERS);
+        try {
+            for (Long bookingId : bookingIds) {
+                CountDownLatch go = new CountDownLatch(1);
+                List<Future<Integer>> statuses = new ArrayList<>();
+                for (int d = 0; d < DECIDERS; d++) {
+                    boolean approve = d % 2 == 0;
+                    statuses.add(executor.submit(() -> {
+                        go.await();
+                        try {
+                            bookingService.approveBooking(bookingId, approve, owner.getId());
+                            return 200;
+                        } catch (RuntimeException e) {
+                            return GlobalExceptionHandler.statusOf(e).value();
+                        }
+                    }));
+                }
+                go.countDown();
+                int winners = 0;
+                for (Future<Integer> status : statuses) {
+                    int code = status.get();
+                    assertTrue(code == 200 || code == 409, "Неожиданный статус " + code);
+                    winners += code == 200 ? 1 : 0;
+                }
+                assertEquals(1, winners, "Решений по бронированию " + bookingId);
+            }
+
+            // Правки вещи не теряются: каждая успешная сдвигает версию ровно на единицу
+            long version = itemRepository.findById(item.getId()).orElseThrow().getVersion();
+            CountDownLatch go = new CountDownLatch(1);
+            List<Future<Integer>> updates = new ArrayList<>();
+            for (int d = 0; d < DECIDERS; d++) {
+                String description = "Описание " + d;
+                updates.add(executor.submit(() -> {
+                    go.await();
+                    try {
+                        itemService.updateItem(item.getId(), new ItemDto(null, null, description, null, null),
+                                owner.getId());
+                        return 200;
+                    } catch (RuntimeException e) {
+                        return GlobalExceptionHandler.statusOf(e).value();
+                    }
+                }));
+            }
+            go.countDown();
+            int updated = 0;
+            for (Future<Integer> status : updates) {
+                int code = status.get();
+                assertTrue(code == 200 || code == 409, "Неожиданный статус " + code);
+                updated += code == 200 ? 1 : 0;
+            }
+            assertTrue(updated > 0);
+            assertEquals(version + updated, itemRepository.findById(item.getId()).orElseThrow().getVersion());
+        } finally {
+            executor.shutdown();
+        }
+
+        List<Booking> bookings = bookingRepository.findByIdIn(bookingIds);
+        long approved = bookings.stream().filter(booking -> booking.getStatus() == BookingStatus.APPROVED).count();
+        Map<BookingState, Long> summary = bookingService.getOwnerBookingSummary(owner.getId());
+        assertEquals(0, summary.get(BookingState.WAITING));
+        assertEquals(bookingIds.size() - approved, summary.get(BookingState.REJECTED));
+    }
+
+    @Test
+    void lostConditionalDecisionIsConflict() throws Exception {
+        User owner = createUser();
+        User booker = createUser();
+        Item item = itemRepository.save(new Item(null, "Вещь", "Описание", true, owner.getId(), null));
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+
+        // Подтверждение и отказ одновременно: один получает 200 и задаёт статус, другой — 409
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 20; i++) {
+                Long bookingId = bookingService.createBooking(new BookingCreateDto(item.getId(),
+                        start.plusDays(i), start.plusDays(i).plusHours(1)), booker.getId()).getId();
+                CountDownLatch go = new CountDownLatch(1);
+                Map<Boolean, Future<Integer>> codes = new HashMap<>();
+                for (boolean approve : new boolean[]{true, false}) {
+                    codes.put(approve, executor.submit(() -> {
+                        go.await();
+                        try {
+                            bookingService.approveBooking(bookingId, approve, owner.getId());
+                            return 200;
+                        } catch (RuntimeException e) {
+                            return GlobalExceptionHandler.statusOf(e).value();
+                        }
+                    }));
+                }
+                go.countDown();
+                int approveCode = codes.get(true).get();
+                int rejectCode = codes.get(false).get();
+                assertEquals(List.of(200, 409), List.of(approveCode, rejectCode).stream().sorted().toList(),
+                        "Бронирование " + bookingId);
+                BookingStatus expected = approveCode == 200 ? BookingStatus.APPROVED : BookingStatus.REJECTED;
+                assertEquals(expected, bookingRepository.findById(bookingId).orElseThrow().getStatus());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Повторное решение после завершённого — тоже 409, чужое бронирование — 403, несуществующее — 404
+        Long bookingId = bookingService.createBooking(new BookingCreateDto(item.getId(),
+                start.plusDays(30), start.plusDays(30).plusHours(1)), booker.getId()).getId();
+        bookingService.approveBooking(bookingId, true, owner.getId());
+        assertThrows(ConflictException.class, () -> bookingService.approveBooking(bookingId, false, owner.getId()));
+        assertEquals(403, GlobalExceptionHandler.statusOf(assertThrows(RuntimeException.class,
+                () -> bookingService.approveBooking(bookingId, false, booker.getId()))).value());
+        assertEquals(404, GlobalExceptionHandler.statusOf(assertThrows(RuntimeException.class,
+                () -> bookingService.approveBooking(Long.MAX_VALUE, true, owner.getId()))).value());
+    }
+
+    @Test
+    void concurrentBatchDecisionsReportConflictsPerEntry() throws Exception {
+        User owner = createUser();
+        User booker = createUser();
+        Item item = itemRepository.save(new Item(null, "Вещь", "Описание", true, owner.getId(), null));
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        List<Long> bookingIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            bookingIds.add(bookingService.createBooking(new BookingCreateDto(item.getId(),
+                    start.plusDays(i), start.plusDays(i).plusHours(1)), booker.getId()).getId());
+        }
+
+        // Пакеты с одними и теми же бронированиями в разном порядке: запрос целиком не откатывается,
+        // по каждому бронированию решение принимает ровно один пакет
+        ExecutorService executor = Executors.newFixedThreadPool(DECIDERS);
+        Map<Long, Integer> winners = new HashMap<>();
+        try {
+            CountDownLatch go = new CountDownLatch(1);
+            List<Future<List<BookingBatchResultDto>>> batches = new ArrayList<>();
+            for (int d = 0; d < DECIDERS; d++) {
+                boolean approve = d % 2 == 0;
+                List<BookingApprovalDto> approvals = new ArrayList<>(bookingIds.stream()
+                        .map(id -> new BookingApprovalDto(id, approve))
+                        .toList());
+                Collections.shuffle(approvals);
+                batches.add(executor.submit(() -> {
+                    go.await();
+                    return bookingService.approveBookings(approvals, owner.getId());
+                }));
+            }
+            go.countDown();
+            for (Future<List<BookingBatchResultDto>> batch : batches) {
+                for (BookingBatchResultDto result : batch.get()) {
+                    int code = result.getStatus();
+                    assertTrue(code == 200 || code == 409, "Неожиданный статус " + code);
+                    if (code == 200) {
+                        winners.merge(result.getBooking().getId(), 1, Integer::sum);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(bookingIds.size(), winners.size());
+        assertTrue(winners.values().stream().allMatch(count -> count == 1));
+        assertCounters(owner.getId(), BookingCounters.Role.OWNER,
+                bookingRepository.countStatesByOwnerIds(List.of(owner.getId())));
+        assertEquals(0, bookingService.getOwnerBookingSummary(owner.getId()).get(BookingState.WAITING));
+    }
+
+    @Test
+    void concurrentFirstBookingsKeepCounters() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 20; round++) {
+                User owner = createUser();
+                User booker = createUser();
+                LocalDateTime start = LocalDateTime.now().plusDays(1);
+                List<Item> items = List.of(
+                        itemRepository.save(new Item(null, "Вещь 1", "Описание", true, owner.getId(), null)),
+                        itemRepository.save(new Item(null, "Вещь 2", "Описание", true, owner.getId(), null)));
+
+                // Строк счётчиков ещё нет ни у арендатора, ни у владельца: обе транзакции их создают
+                CountDownLatch go = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+                for (Item item : items) {
+                    futures.add(executor.submit(() -> {
+                        go.await();
+                        return bookingService.createBooking(new BookingCreateDto(item.getId(), start,
+                                start.plusHours(1)), booker.getId());
+                    }));
+                }
+                go.countDown();
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+
+                assertCounters(booker.getId(), BookingCounters.Role.BOOKER,
+                        bookingRepository.countStatesByBookerIds(List.of(booker.getId())));
+                assertCounters(owner.getId(), BookingCounters.Role.OWNER,
+                        bookingRepository.countStatesByOwnerIds(List.of(owner.getId())));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void entityLoadedBeforeRollCannotRestorePhase() throws Exception {
+        User owner = createUser();
+        User booker = createUser();
+        Item item = itemRepository.save(new Item(null, "Вещь", "Описание", true, owner.getId(), null));
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        Long bookingId = bookingService.createBooking(new BookingCreateDto(item.getId(), start, start.plusHours(1)),
+                booker.getId()).getId();
+        // Бронирование началось, но перенос в CURRENT ещё не выполнялся
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("update bookings set start_date = ?, end_date = ? where id = ?",
+                now.minusHours(1), now.plusHours(1), bookingId);
+
+        // Решение через сущность, загруженную до переноса фаз, а перенос выполняется между загрузкой и записью
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertThrows(ObjectOptimisticLockingFailureException.class,
+                    () -> transactionTemplate.executeWithoutResult(status -> {
+                        Booking booking = bookingRepository.findById(bookingId).orElseThrow();
+                        assertEquals(BookingPhase.FUTURE, booking.getPhase());
+                        booking.setStatus(BookingStatus.APPROVED);
+                        try {
+                            executor.submit(phaseRoller::rollForward).get();
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                        bookingRepository.flush();
+                    }));
+        } finally {
+            executor.shutdown();
+        }
+
+        Booking booking = bookingRepository.findById(bookingId).orElseThrow();
+        assertEquals(BookingPhase.CURRENT, booking.getPhase());
+        assertEquals(BookingStatus.WAITING, booking.getStatus());
+        assertCounters(booker.getId(), BookingCounters.Role.BOOKER,
+                bookingRepository.countStatesByBookerIds(List.of(booker.getId())));
+        assertCounters(owner.getId(), BookingCounters.Role.OWNER,
+                bookingRepository.countStatesByOwnerIds(List.of(owner.getId())));
+    }
+
+    @Test
+    void overlapGuardPrunesEndedIntervalsAndStillRejectsPastOverlaps() {
+        User owner = createUser();
+        User booker = createUser();
+        Item item = itemRepository.save(new Item(null, "Вещь", "Описание", true, owner.getId(), null));
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        overlapGuard.prune();
+        bookingService.createBooking(new BookingCreateDto(item.getId(), now.minusDays(3), now.minusDays(2)),
+                booker.getId());
+        bookingService.createBooking(new BookingCreateDto(item.getId(), now.plusDays(1), now.plusDays(2)),
+                booker.getId());
+
+        // Закончившееся бронирование удалено из дерева, но пересечение с ним находит запрос к БД
+        assertEquals(1, overlapGuard.prune());
+        assertThrows(ConflictException.class, () -> bookingService.createBooking(new BookingCreateDto(item.getId(),
+                now.minusDays(3).plusHours(1), now.minusDays(2).plusHours(1)), booker.getId()));
+        assertThrows(ConflictException.class, () -> bookingService.createBooking(new BookingCreateDto(item.getId(),
+                now.plusDays(1).plusHours(1), now.plusDays(3)), booker.getId()));
+        bookingService.createBooking(new BookingCreateDto(item.getId(), now.minusDays(2), now.minusDays(1)),
+                booker.getId());
+    }
+
+    @Test
+    void onlyOverlapConstraintViolationIsConflict() {
+        User owner = createUser();
+        Item item = itemRepository.save(new Item(null, "Вещь", "Описание", true, owner.getId(), null));
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+
+        DataIntegrityViolationException foreignKey = new DataIntegrityViolationException("Нарушение внешнего ключа",
+                new SQLException("Referential integrity constraint violation", "23503"));
+        assertSame(foreignKey, assertThrows(DataIntegrityViolationException.class,
+                () -> overlapGuard.reserve(item.getId(), start, start.plusHours(1), () -> {
+                    throw foreignKey;
+                })));
+
+        DataIntegrityViolationException overlap = new DataIntegrityViolationException("Пересечение",
+                new SQLException("ERROR: conflicting key value violates exclusion constraint \"bookings_no_overlap\"",
+                        "23P01"));
+        assertThrows(ConflictException.class, () -> overlapGuard.reserve(item.getId(), start, start.plusHours(1),
+                () -> {
+                    throw overlap;
+                }));
+    }
+
+    @Test
+    void stateListingsFollowPhasesMovedByRoller() {
+        User owner = createUser();
+        User booker = createUser();
+        Item item = itemRepository.save(new Item(null, "Вещь", "Описание", true, owner.getId(), null));
+        LocalDateTime now = LocalDateTime.now();
+        // Группы записаны так, будто границы прошли после сохранения, а перенос ещё не выполнялся
+        Booking started = bookingRepository.save(new Booking(null, now.minusHours(1), now.plusHours(1), item, booker,
+                BookingStatus.APPROVED, null, BookingPhase.FUTURE, null));
+        Booking ended = bookingRepository.save(new Booking(null, now.minusHours(3), now.minusHours(2), item, booker,
+                BookingStatus.APPROVED, null, BookingPhase.CURRENT, null));
+        Booking skipped = bookingRepository.save(new Booking(null, now.minusHours(5), now.minusHours(4), item, booker,
+                BookingStatus.APPROVED, null, BookingPhase.FUTURE, null));
+        Booking future = bookingRepository.save(new Booking(null, now.plusDays(1), now.plusDays(2), item, booker,
+                BookingStatus.WAITING));
+        assertEquals(owner.getId(), future.getOwnerId());
+        assertEquals(BookingPhase.FUTURE, future.getPhase());
+
+        phaseRoller.rollForward();
+
+        assertEquals(List.of(started.getId()), ids(bookingService.getUserBookings("CURRENT", booker.getId(), 0, 10, null)));
+        assertEquals(List.of(ended.getId(), skipped.getId()),
+                ids(bookingService.getUserBookings("PAST", booker.getId(), 0, 10, null)));
+        assertEquals(List.of(future.getId()), ids(bookingService.getOwnerBookings("FUTURE", owner.getId(), 0, 10, null)));
+        assertEquals(List.of(ended.getId(), skipped.getId()),
+                ids(bookingService.getOwnerBookings("PAST", owner.getId(), null, 10, "")));
+    }
+
+    private void assertCounters(Long userId, BookingCounters.Role role, List<Object[]> actual) {
+        long[] expected = new long[BookingState.values().length];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = ((Number) actual.get(0)[i + 1]).longValue();
+        }
+        long[] stored = countersRepository.findById(new BookingCounters.Key(userId, role)).orElseThrow().getCounts();
+        assertArrayEquals(expected, stored, "Счётчики " + role + " пользователя " + userId);
+    }
+
+    private static List<Long> ids(List<BookingResponseDto> bookings) {
+        return bookings.stream().map(BookingResponseDto::getId).toList();
+    }
+
+    private User createUser() {
+        String name = UUID.randomUUID().toString();
+        return userRepository.save(new User(null, name, name + "@mail.ru"));
+    }
+}
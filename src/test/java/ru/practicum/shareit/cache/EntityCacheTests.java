@@ -0,0 +1,152 @@
+package ru.practicum.shareit.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.exception.GlobalExceptionHandler;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemRepository;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "shareit.booking-phases.roll-interval=PT1H")
+class EntityCacheTests {
+
+    private static final int WRITERS = 4;
+    private static final int ROUNDS = 10;
+
+    @Autowired
+    private EntityCache<User> userCache;
+    @Autowired
+    private EntityCache<Item> itemCache;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private ItemService itemService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void updatesAndDeletesEvictCachedEntries() {
+        User user = createUser();
+        Item item = itemRepository.save(new Item(null, "Дрель", "Описание", true, user.getId(), null));
+        assertEquals(user.getName(), userService.getUserById(user.getId()).getName());
+        assertEquals("Дрель", itemService.getItemById(item.getId(), user.getId()).getName());
+
+        userService.updateUser(user.getId(), new UserDto(null, "Новое имя", null));
+        itemService.updateItem(item.getId(), new ItemDto(null, "Перфоратор", null, null, null), user.getId());
+        assertEquals("Новое имя", userService.getUserById(user.getId()).getName());
+        assertEquals("Перфоратор", itemService.getItemById(item.getId(), user.getId()).getName());
+        assertEquals(item.getVersion() + 1, itemCache.get(item.getId()).orElseThrow().getVersion());
+
+        User deleted = createUser();
+        assertTrue(userCache.get(deleted.getId()).isPresent());
+        userService.deleteUser(deleted.getId());
+        assertTrue(userCache.get(deleted.getId()).isEmpty());
+    }
+
+    @Test
+    void concurrentUpdatesLeaveCacheEqualToDatabase() throws Exception {
+        User user = createUser();
+        Item item = itemRepository.save(new Item(null, "Дрель", "Описание", true, user.getId(), null));
+
+        // Писатели меняют пользователя и вещь, читатели тем временем заполняют кэш
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS * 2);
+        try {
+            CountDownLatch go = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                futures.add(executor.submit(() -> {
+                    go.await();
+                    for (int round = 0; round < ROUNDS; round++) {
+                        String name = "Имя " + writer + "-" + round;
+                        // Параллельные правки пользователя и вещи отклоняются проверкой версии
+                        try {
+                            userService.updateUser(user.getId(), new UserDto(null, name, null));
+                        } catch (RuntimeException e) {
+                            assertEquals(409, GlobalExceptionHandler.statusOf(e).value());
+                        }
+                        try {
+                            itemService.updateItem(item.getId(), new ItemDto(null, name, null, null, null),
+                                    user.getId());
+                        } catch (RuntimeException e) {
+                            assertEquals(409, GlobalExceptionHandler.statusOf(e).value());
+                        }
+                    }
+                    return null;
+                }));
+                futures.add(executor.submit(() -> {
+                    go.await();
+                    for (int round = 0; round < ROUNDS * 4; round++) {
+                        userService.getUserById(user.getId());
+                        itemService.getItemById(item.getId(), user.getId());
+                    }
+                    return null;
+                }));
+            }
+            go.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        User storedUser = userRepository.findById(user.getId()).orElseThrow();
+        User cachedUser = userCache.get(user.getId()).orElseThrow();
+        assertEquals(storedUser.getName(), cachedUser.getName());
+        assertEquals(storedUser.getVersion(), cachedUser.getVersion());
+        Item stored = itemRepository.findById(item.getId()).orElseThrow();
+        Item cached = itemCache.get(item.getId()).orElseThrow();
+        assertEquals(stored.getName(), cached.getName());
+        assertEquals(stored.getVersion(), cached.getVersion());
+    }
+
+    @Test
+    void rolledBackWriteLeavesNoStaleOrPhantomEntry() {
+        User user = createUser();
+
+        // Транзакция читает через кэш собственную незакоммиченную правку и откатывается
+        transactionTemplate.executeWithoutResult(status -> {
+            userService.updateUser(user.getId(), new UserDto(null, "Откат", null));
+            assertEquals("Откат", userService.getUserById(user.getId()).getName());
+            status.setRollbackOnly();
+        });
+        assertEquals(user.getName(), userService.getUserById(user.getId()).getName());
+
+        // Созданный и прочитанный через кэш в откатившейся транзакции пользователь не остаётся в кэше
+        Long[] phantomId = new Long[1];
+        transactionTemplate.executeWithoutResult(status -> {
+            phantomId[0] = createUser().getId();
+            assertTrue(userCache.get(phantomId[0]).isPresent());
+            status.setRollbackOnly();
+        });
+        assertTrue(userCache.get(phantomId[0]).isEmpty());
+    }
+
+    private User createUser() {
+        String name = UUID.randomUUID().toString();
+        return userRepository.save(new User(null, name, name + "@mail.ru"));
+    }
+}
@@ -0,0 +1,167 @@
+package ru.practicum.shareit.concurrency;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.shareit.ShareItApp;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DatabaseBulkheadTests {
+
+    private static final int PERMITS = 4;
+    private static final int TASKS = 2000;
+    private static final String REPLICA_URL = "jdbc:h2:mem:bulkhead-replica;DB_CLOSE_DELAY=-1";
+
+    @Test
+    void virtualThreadsNeverHoldMoreConnectionsThanPermits() throws Exception {
+        DataSource target = mock(DataSource.class);
+        when(target.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        DatabaseBulkhead bulkhead = new DatabaseBulkhead(target, PERMITS, Duration.ofSeconds(30));
+
+        AtomicInteger open = new AtomicInteger();
+        AtomicInteger maxOpen = new AtomicInteger();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < TASKS; i++) {
+                futures.add(executor.submit(() -> {
+                    try (Connection ignored = bulkhead.getConnection()) {
+                        maxOpen.accumulateAndGet(open.incrementAndGet(), Math::max);
+                        Thread.sleep(1);
+                        open.decrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        assertTrue(maxOpen.get() <= PERMITS, "Одновременно открыто " + maxOpen.get() + " соединений");
+        assertEquals(0, bulkhead.getInUse());
+    }
+
+    @Test
+    void getConnectionFailsFastWhenNoPermitFreesUp() throws Exception {
+        DataSource target = mock(DataSource.class);
+        when(target.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        DatabaseBulkhead bulkhead = new DatabaseBulkhead(target, 1, Duration.ofMillis(50));
+
+        Connection held = bulkhead.getConnection();
+        assertThrows(SQLTransientConnectionException.class, bulkhead::getConnection);
+        held.close();
+        // Повторное закрытие не должно выдать лишнее разрешение
+        held.close();
+        bulkhead.getConnection().close();
+        assertEquals(0, bulkhead.getInUse());
+    }
+
+    @Test
+    void poolIsSizedFromHikariAndClosedWithContext() throws Exception {
+        // Ограничитель подменяет бин DataSource, поэтому закрыть пул должен он сам
+        HikariDataSource wrapped = mock(HikariDataSource.class);
+        new DatabaseBulkhead(wrapped, 1, Duration.ofSeconds(1)).close();
+        verify(wrapped).close();
+
+        HikariDataSource pool;
+        try (ConfigurableApplicationContext context = run(
+                "--spring.datasource.url=jdbc:h2:mem:bulkhead-close")) {
+            DatabaseBulkhead bulkhead = assertInstanceOf(DatabaseBulkhead.class, context.getBean(DataSource.class));
+            assertEquals(3, bulkhead.getMaxPermits());
+            pool = bulkhead.unwrap(HikariDataSource.class);
+            assertFalse(pool.isClosed());
+        }
+        assertTrue(pool.isClosed());
+    }
+
+    @Test
+    void primaryAndReplicaPoolsHaveOwnPermitsAndAreClosedWithContext() throws Exception {
+        Flyway.configure()
+                .dataSource(REPLICA_URL, "sa", "password")
+                .locations("classpath:db/migration", "classpath:ru/practicum/shareit/db/migration")
+                .load()
+                .migrate();
+        HikariDataSource primary;
+        try (ConfigurableApplicationContext context = run(
+                "--spring.datasource.url=jdbc:h2:mem:bulkhead-primary",
+                "--shareit.replicas.enabled=true",
+                "--shareit.replicas.urls[0]=" + REPLICA_URL,
+                "--shareit.replicas.pool-size=2")) {
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+            // Размеры из настроек каждого пула, а не значение по умолчанию
+            assertEquals(3, permits(meterRegistry, "primary"));
+            assertEquals(2, permits(meterRegistry, "replica-1"));
+
+            // Чтение в GET-запросе идёт с реплики и занимает разрешение её ограничителя
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpResponse<String> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + port + "/users")).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertTrue(replicaSessions() > 1, "Пул реплики не открыл соединений");
+            assertEquals(0, meterRegistry.get("shareit.db.bulkhead.in-use").tag("pool", "replica-1").gauge().value());
+
+            primary = context.getBean(DataSource.class).unwrap(HikariDataSource.class);
+            assertFalse(primary.isClosed());
+        }
+        assertTrue(primary.isClosed());
+        assertEquals(1, replicaSessions(), "Пул реплики не закрыт вместе с контекстом");
+    }
+
+    private static ConfigurableApplicationContext run(String... args) {
+        List<String> all = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--shareit.db-bulkhead.enabled=true",
+                "--spring.datasource.hikari.maximum-pool-size=3",
+                "--shareit.booking-phases.roll-interval=PT1H",
+                "--shareit.booking-pointers.roll-interval=PT1H",
+                "--shareit.outbox.poll-interval=PT1H",
+                "--spring.jpa.show-sql=false"));
+        all.addAll(List.of(args));
+        return new SpringApplicationBuilder(ShareItApp.class).run(all.toArray(String[]::new));
+    }
+
+    private static double permits(MeterRegistry meterRegistry, String pool) {
+        return meterRegistry.get("shareit.db.bulkhead.permits").tag("pool", pool).gauge().value();
+    }
+
+    // Сессии базы реплики, включая соединение самой проверки
+    private static int replicaSessions() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(REPLICA_URL, "sa", "password");
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("select count(*) from information_schema.sessions")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
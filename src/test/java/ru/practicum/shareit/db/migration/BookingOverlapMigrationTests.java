@@ -0,0 +1,112 @@
+package ru.practicum.shareit.db.migration;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Миграция исключающего ограничения на базе, где пересечения уже есть: до неё они ничем не запрещались
+class BookingOverlapMigrationTests {
+
+    @Test
+    void laterOverlappingWaitingBookingsAreRejected() throws SQLException {
+        String url = "jdbc:h2:mem:overlap-migration-resolved;DB_CLOSE_DELAY=-1";
+        migrateTo(url, "10");
+        seed(url,
+                // Вещь 1: ожидающее внутри подтверждённого, два пересекающихся ожидающих и стык без пересечения
+                "(1, 1, '2024-01-01 10:00', '2024-01-01 12:00', 'APPROVED')",
+                "(2, 1, '2024-01-01 11:00', '2024-01-01 11:30', 'WAITING')",
+                "(3, 1, '2024-01-02 10:00', '2024-01-02 12:00', 'WAITING')",
+                "(4, 1, '2024-01-02 11:00', '2024-01-02 13:00', 'WAITING')",
+                "(5, 1, '2024-01-01 12:00', '2024-01-01 13:00', 'WAITING')",
+                // Подтверждённое начинается позже ожидающего, но остаётся оно
+                "(6, 1, '2024-01-03 09:00', '2024-01-03 11:00', 'WAITING')",
+                "(7, 1, '2024-01-03 10:00', '2024-01-03 12:00', 'APPROVED')",
+                // Отклонённые не участвуют, другая вещь — тоже
+                "(8, 1, '2024-01-04 10:00', '2024-01-04 12:00', 'REJECTED')",
+                "(9, 1, '2024-01-04 11:00', '2024-01-04 12:00', 'WAITING')",
+                "(10, 2, '2024-01-01 10:00', '2024-01-01 12:00', 'WAITING')");
+
+        migrateTo(url, "11");
+
+        Map<Long, String> expected = new LinkedHashMap<>();
+        expected.put(1L, "APPROVED");
+        expected.put(2L, "REJECTED");
+        expected.put(3L, "WAITING");
+        expected.put(4L, "REJECTED");
+        expected.put(5L, "WAITING");
+        expected.put(6L, "REJECTED");
+        expected.put(7L, "APPROVED");
+        expected.put(8L, "REJECTED");
+        expected.put(9L, "WAITING");
+        expected.put(10L, "WAITING");
+        assertEquals(expected, statuses(url));
+    }
+
+    @Test
+    void overlappingApprovedBookingsStopMigrationWithTheirIds() throws SQLException {
+        String url = "jdbc:h2:mem:overlap-migration-conflict;DB_CLOSE_DELAY=-1";
+        migrateTo(url, "10");
+        seed(url,
+                "(1, 1, '2024-01-01 10:00', '2024-01-01 12:00', 'APPROVED')",
+                "(2, 1, '2024-01-01 11:00', '2024-01-01 13:00', 'APPROVED')",
+                "(3, 1, '2024-01-01 11:30', '2024-01-01 12:30', 'WAITING')");
+
+        FlywayException e = assertThrows(FlywayException.class, () -> migrateTo(url, "11"));
+        // Flyway оборачивает исключение миграции, список id — в одной из причин
+        StringBuilder messages = new StringBuilder();
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            messages.append(t.getMessage()).append('\n');
+        }
+        assertTrue(messages.toString().contains("1 и 2"), messages.toString());
+        // Миграция не применилась и ничего не отклонила
+        assertEquals("WAITING", statuses(url).get(3L));
+    }
+
+    private static void migrateTo(String url, String version) {
+        Flyway.configure()
+                .dataSource(url, "sa", "password")
+                .locations("classpath:db/migration", "classpath:ru/practicum/shareit/db/migration")
+                .target(version)
+                .load()
+                .migrate();
+    }
+
+    private static void seed(String url, String... bookings) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "password");
+             Statement statement = connection.createStatement()) {
+            statement.execute("insert into users (id, name, email) values (1, 'Владелец', 'owner@mail.ru'), " +
+                    "(2, 'Арендатор', 'booker@mail.ru')");
+            statement.execute("insert into items (id, name, description, available, owner_id) values " +
+                    "(1, 'Дрель', 'Ударная', true, 1), (2, 'Пила', 'Цепная', true, 1)");
+            statement.execute("create temporary table seed (id bigint, item_id bigint, start_date timestamp, " +
+                    "end_date timestamp, status varchar(16))");
+            statement.execute("insert into seed values " + String.join(", ", bookings));
+            statement.execute("insert into bookings (id, item_id, booker_id, owner_id, start_date, end_date, " +
+                    "status, phase) select id, item_id, 2, 1, start_date, end_date, status, 'PAST' from seed");
+            statement.execute("drop table seed");
+        }
+    }
+
+    private static Map<Long, String> statuses(String url) throws SQLException {
+        Map<Long, String> statuses = new LinkedHashMap<>();
+        try (Connection connection = DriverManager.getConnection(url, "sa", "password");
+             Statement statement = connection.createStatement();
+             var rs = statement.executeQuery("select id, status from bookings order by id")) {
+            while (rs.next()) {
+                statuses.put(rs.getLong(1), rs.getString(2));
+            }
+        }
+        return statuses;
+    }
+}
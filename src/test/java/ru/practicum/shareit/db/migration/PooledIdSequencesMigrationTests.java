@@ -0,0 +1,107 @@
+package ru.practicum.shareit.db.migration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// База, созданная до появления миграций: схема V1 без истории Flyway и строки с id от identity, в том числе
+// с пропусками после удалений. Контекст поднимается на ней, и Flyway принимает её за V1 и применяет V2 и дальше
+@SpringBootTest(properties = {
+        "shareit.booking-phases.roll-interval=PT1H",
+        "shareit.booking-pointers.roll-interval=PT1H",
+        "shareit.outbox.poll-interval=PT1H"
+})
+class PooledIdSequencesMigrationTests {
+
+    private static final String URL = "jdbc:h2:mem:pooled-id-migration;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @DynamicPropertySource
+    static void seededDatabase(DynamicPropertyRegistry registry) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "password");
+             Statement statement = connection.createStatement()) {
+            statement.execute("runscript from 'classpath:db/migration/V1__initial_schema.sql'");
+            statement.execute("insert into users (id, name, email) values (1, 'Первый', 'first@mail.ru'), " +
+                    "(2, 'Второй', 'second@mail.ru'), (57, 'Последний', 'last@mail.ru')");
+            statement.execute("insert into items (id, name, description, available, owner_id) values " +
+                    "(3, 'Дрель', 'Ударная', true, 1), (130, 'Пила', 'Цепная', true, 57)");
+            statement.execute("insert into bookings (id, start_date, end_date, item_id, booker_id, status) values " +
+                    "(1, timestamp '2024-01-01 10:00:00', timestamp '2024-01-02 10:00:00', 3, 2, 'APPROVED'), " +
+                    "(75, timestamp '2024-02-01 10:00:00', timestamp '2024-02-02 10:00:00', 130, 1, 'REJECTED')");
+            statement.execute("insert into comments (id, text, item_id, author_id, created) values " +
+                    "(9, 'Отличная дрель', 3, 2, timestamp '2024-01-03 10:00:00')");
+        }
+        registry.add("spring.datasource.url", () -> URL);
+    }
+
+    @Test
+    void sequencesStartAfterExistingIdsAndPooledLoBlocksDoNotCollide() {
+        // Миграция сохраняет прежние id
+        assertEquals(List.of(1L, 2L, 57L), ids("users"));
+        assertEquals(List.of(3L, 130L), ids("items"));
+        assertEquals(List.of(1L, 75L), ids("bookings"));
+        assertEquals(List.of(9L), ids("comments"));
+
+        for (Map.Entry<String, Long> maxId : Map.of("users", 57L, "items", 130L, "bookings", 75L, "comments", 9L)
+                .entrySet()) {
+            Map<String, Object> sequence = jdbcTemplate.queryForMap("select start_value, increment " +
+                    "from information_schema.sequences where sequence_name = ?", maxId.getKey().toUpperCase() + "_SEQ");
+            assertEquals(maxId.getValue() + 1, ((Number) sequence.get("START_VALUE")).longValue(), maxId.getKey());
+            assertEquals(V2__Pooled_id_sequences.ALLOCATION_SIZE, ((Number) sequence.get("INCREMENT")).intValue(),
+                    maxId.getKey());
+        }
+
+        // pooled-lo выдаёт блок [значение последовательности, значение + allocationSize): первый id сразу после
+        // максимального, следующий блок начинается там, где кончился предыдущий
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i <= V2__Pooled_id_sequences.ALLOCATION_SIZE; i++) {
+            userIds.add(userRepository.save(new User(null, "Новый " + i, "new" + i + "@mail.ru")).getId());
+        }
+        List<Long> expected = new ArrayList<>();
+        for (long id = 58; id <= 58 + V2__Pooled_id_sequences.ALLOCATION_SIZE; id++) {
+            expected.add(id);
+        }
+        assertEquals(expected, userIds);
+
+        Item item = itemRepository.save(new Item(null, "Лобзик", "Описание", true, 1L, null));
+        assertEquals(131L, item.getId());
+        User booker = userRepository.findById(2L).orElseThrow();
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        Booking booking = bookingRepository.save(new Booking(null, start, start.plusDays(1), item, booker,
+                BookingStatus.WAITING));
+        assertEquals(76L, booking.getId());
+    }
+
+    private List<Long> ids(String table) {
+        return jdbcTemplate.queryForList("select id from " + table + " order by id", Long.class);
+    }
+}
@@ -0,0 +1,208 @@
+package ru.practicum.shareit.item;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemBookingPointers;
+import ru.practicum.shareit.item.model.ItemBookingPointersRepository;
+import ru.practicum.shareit.item.model.ItemRepository;
+import ru.practicum.shareit.item.service.ItemBookingPointersService;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Перекат указателей вызывается тестом напрямую. Своя база: проверка согласованности считает исправленные
+// вещи по всей таблице, а другие тесты сохраняют бронирования в обход сервиса
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:pointers-tests",
+        "shareit.booking-pointers.roll-interval=PT1H",
+        "shareit.booking-phases.roll-interval=PT1H",
+        "shareit.outbox.poll-interval=PT1H"
+})
+class ItemBookingPointersServiceTests {
+
+    @Autowired
+    private ItemBookingPointersService pointersService;
+    @Autowired
+    private ItemBookingPointersRepository pointersRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User owner;
+    private User booker;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        owner = createUser();
+        booker = createUser();
+        // Секунды: timestamp(6) в базе округлил бы наносекунды, и сравнения с прочитанными датами расходились бы
+        now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    @Test
+    void onApprovedMovesPointersOnlyTowardsNow() {
+        Item item = createItem();
+        Booking oldPast = approve(item, now.minusDays(3), now.minusDays(3).plusHours(1));
+        Booking past = approve(item, now.minusDays(2), now.minusDays(2).plusHours(1));
+        Booking soon = approve(item, now.plusDays(1), now.plusDays(1).plusHours(1));
+        Booking far = approve(item, now.plusDays(3), now.plusDays(3).plusHours(1));
+
+        pointersService.onApproved(List.of(oldPast, far));
+        assertPointers(item, oldPast, far, far.getStart());
+
+        pointersService.onApproved(soon);
+        assertPointers(item, oldPast, soon, soon.getStart());
+        pointersService.onApproved(past);
+        assertPointers(item, past, soon, soon.getStart());
+
+        // Повторное или запоздалое подтверждение более далёких бронирований указатели не откатывает
+        pointersService.onApproved(List.of(oldPast, far));
+        assertPointers(item, past, soon, soon.getStart());
+
+        // Текущее бронирование не последнее и не следующее, но указатели устареют с его окончанием
+        Booking current = approve(item, now.minusHours(1), now.plusHours(1));
+        pointersService.onApproved(current);
+        assertPointers(item, past, soon, current.getEnd());
+
+        // Для вещи без строки указателей она рассчитывается по таблице bookings
+        Item withoutPointers = itemRepository.save(new Item(null, "Пила", "Описание", true, owner.getId(), null));
+        Booking first = approve(withoutPointers, now.plusDays(2), now.plusDays(2).plusHours(1));
+        pointersService.onApproved(first);
+        assertPointers(withoutPointers, null, first, first.getStart());
+
+        assertEquals(0, pointersService.rebuildAll());
+    }
+
+    @Test
+    void rollForwardMovesPointersWhenBookingsCrossValidUntil() {
+        Item item = createItem();
+        Booking past = approve(item, now.minusDays(2), now.minusDays(2).plusHours(1));
+        Booking soon = approve(item, now.plusDays(1), now.plusDays(1).plusHours(2));
+        Booking later = approve(item, now.plusDays(3), now.plusDays(3).plusHours(1));
+        pointersService.onApproved(List.of(past, soon, later));
+        assertPointers(item, past, soon, soon.getStart());
+
+        // Прошли сутки и час: ближайшее бронирование началось, указатели устарели
+        shiftTime(item, -(24 * 60 + 60));
+        past = reload(past);
+        soon = reload(soon);
+        later = reload(later);
+        assertFalse(pointersRepository.findById(item.getId()).orElseThrow().isValidAt(LocalDateTime.now()));
+
+        // Чтение пересчитывает устаревшие указатели, но не записывает их
+        ItemBookingPointers current = pointersService.current(item.getId());
+        assertEquals(past.getId(), current.getLastBookingId());
+        assertEquals(later.getId(), current.getNextBookingId());
+        assertEquals(soon.getEnd(), current.getValidUntil());
+        assertEquals(soon.getId(), pointersRepository.findById(item.getId()).orElseThrow().getNextBookingId());
+
+        pointersService.rollForward();
+        assertPointers(item, past, later, soon.getEnd());
+
+        // Ещё два часа: бронирование закончилось и стало последним
+        shiftTime(item, -120);
+        past = reload(past);
+        soon = reload(soon);
+        later = reload(later);
+        pointersService.rollForward();
+        assertPointers(item, soon, later, later.getStart());
+    }
+
+    @Test
+    void rebuildAllFixesOnlyDivergedPointers() {
+        Item item = createItem();
+        Booking past = approve(item, now.minusDays(2), now.minusDays(2).plusHours(1));
+        Booking next = approve(item, now.plusDays(1), now.plusDays(1).plusHours(1));
+        pointersService.onApproved(List.of(past, next));
+        Item untouched = createItem();
+        Booking untouchedNext = approve(untouched, now.plusDays(2), now.plusDays(2).plusHours(1));
+        pointersService.onApproved(untouchedNext);
+        assertEquals(0, pointersService.rebuildAll());
+
+        // Потерянное обновление указателя, строка, которую не завели, и подтверждение мимо сервиса
+        jdbcTemplate.update("update item_booking_pointers set last_booking_id = null, last_booker_id = null, " +
+                "last_start = null, last_end = null, valid_until = ? where item_id = ?", now.plusYears(1), item.getId());
+        Item lost = itemRepository.save(new Item(null, "Пила", "Описание", true, owner.getId(), null));
+        Booking lostNext = approve(lost, now.plusDays(3), now.plusDays(3).plusHours(1));
+        Item bypassed = createItem();
+        Booking bypassedPast = approve(bypassed, now.minusDays(1), now.minusDays(1).plusHours(1));
+
+        assertEquals(3, pointersService.rebuildAll());
+        assertPointers(item, past, next, next.getStart());
+        assertPointers(lost, null, lostNext, lostNext.getStart());
+        assertPointers(bypassed, bypassedPast, null, null);
+        assertPointers(untouched, null, untouchedNext, untouchedNext.getStart());
+        assertEquals(0, pointersService.rebuildAll());
+    }
+
+    private void assertPointers(Item item, Booking last, Booking next, LocalDateTime validUntil) {
+        ItemBookingPointers pointers = pointersRepository.findById(item.getId()).orElseThrow();
+        if (last == null) {
+            assertNull(pointers.getLastBookingId());
+        } else {
+            assertEquals(last.getId(), pointers.getLastBookingId());
+            assertEquals(last.getBooker().getId(), pointers.getLastBookerId());
+            assertEquals(last.getStart(), pointers.getLastStart());
+            assertEquals(last.getEnd(), pointers.getLastEnd());
+        }
+        if (next == null) {
+            assertNull(pointers.getNextBookingId());
+        } else {
+            assertEquals(next.getId(), pointers.getNextBookingId());
+            assertEquals(next.getBooker().getId(), pointers.getNextBookerId());
+            assertEquals(next.getStart(), pointers.getNextStart());
+            assertEquals(next.getEnd(), pointers.getNextEnd());
+        }
+        assertEquals(validUntil, pointers.getValidUntil());
+    }
+
+    // Ход времени: бронирования вещи и её сохранённые указатели сдвигаются в прошлое на одну величину
+    private void shiftTime(Item item, int minutes) {
+        jdbcTemplate.update("update bookings set start_date = dateadd(minute, ?, start_date), " +
+                "end_date = dateadd(minute, ?, end_date) where item_id = ?", minutes, minutes, item.getId());
+        jdbcTemplate.update("update item_booking_pointers set last_start = dateadd(minute, ?, last_start), " +
+                "last_end = dateadd(minute, ?, last_end), next_start = dateadd(minute, ?, next_start), " +
+                "next_end = dateadd(minute, ?, next_end), valid_until = dateadd(minute, ?, valid_until) " +
+                "where item_id = ?", minutes, minutes, minutes, minutes, minutes, item.getId());
+    }
+
+    private Booking reload(Booking booking) {
+        return bookingRepository.findById(booking.getId()).orElseThrow();
+    }
+
+    private Booking approve(Item item, LocalDateTime start, LocalDateTime end) {
+        return bookingRepository.save(new Booking(null, start, end, item, booker, BookingStatus.APPROVED));
+    }
+
+    private Item createItem() {
+        Item item = itemRepository.save(new Item(null, "Дрель", "Описание", true, owner.getId(), null));
+        pointersService.initialize(item.getId());
+        return item;
+    }
+
+    private User createUser() {
+        String name = UUID.randomUUID().toString();
+        return userRepository.save(new User(null, name, name + "@mail.ru"));
+    }
+}
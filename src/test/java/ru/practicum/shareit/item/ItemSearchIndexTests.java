@@ -0,0 +1,139 @@
+package ru.practicum.shareit.item;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemSearchCache;
+import ru.practicum.shareit.item.service.ItemSearchCacheProperties;
+import ru.practicum.shareit.item.service.ItemSearchIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ItemSearchIndexTests {
+
+    private static final String[] WORDS = {"Дрель", "дрелька", "Пила", "ПИЛА", "лобзик", "Шуруповёрт", "Drill",
+            "saw", "аккумуляторная", "ударная", "a", "ab", "абв", "ёж", "Ёлка", "42", "x-1000"};
+
+    private final ItemSearchIndex index = new ItemSearchIndex();
+
+    @Test
+    void matchesOldContainsIgnoreCaseFilter() {
+        Random random = new Random(7);
+        List<Item> items = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            Item item = new Item(id, phrase(random), phrase(random), random.nextInt(5) > 0, 1L, null);
+            items.add(item);
+            index.index(item);
+        }
+
+        List<String> queries = new ArrayList<>(List.of("", "а", "Л", "ab", "ДР", "пил", "ПИЛА", "рель ", "ёлк",
+                "x-1", "нет такого"));
+        for (int i = 0; i < 300; i++) {
+            // Подстроки названий и описаний в случайном регистре, в том числе через границу слов
+            Item item = items.get(random.nextInt(items.size()));
+            String text = random.nextBoolean() ? item.getName() : item.getDescription();
+            int start = random.nextInt(text.length());
+            String query = text.substring(start, Math.min(text.length(), start + 1 + random.nextInt(8)));
+            queries.add(random.nextBoolean() ? query.toUpperCase() : query);
+        }
+        for (String query : queries) {
+            assertEquals(containsIgnoreCase(items, query), index.search(query, 0, Integer.MAX_VALUE), query);
+        }
+    }
+
+    @Test
+    void pagesFollowIdOrderForLongAndShortQueries() {
+        for (long id = 1; id <= 30; id++) {
+            index.index(new Item(id, id % 3 == 0 ? "Дрель " + id : "Пила " + id, "Описание", true, 1L, null));
+        }
+        List<Long> drills = List.of(3L, 6L, 9L, 12L, 15L, 18L, 21L, 24L, 27L, 30L);
+
+        for (String query : List.of("ДРЕЛЬ", "др", "д")) {
+            List<Long> all = index.search(query, 0, Integer.MAX_VALUE);
+            assertEquals(drills, all, query);
+            for (int from = 0; from <= all.size() + 1; from++) {
+                for (int size = 1; size <= 4; size++) {
+                    List<Long> expected = all.subList(Math.min(from, all.size()), Math.min(all.size(), from + size));
+                    assertEquals(expected, index.search(query, from, size), query + " " + from + "/" + size);
+                }
+            }
+        }
+        // Короткий запрос без триграмм тоже ищет по подстроке, а не по началу слова
+        assertEquals(List.of(1L, 2L, 4L), index.search("ил", 0, 3));
+    }
+
+    @Test
+    void renamedAndUnavailableItemsLeaveResults() {
+        index.index(new Item(1L, "Дрель", "Ударная", true, 1L, null));
+        index.index(new Item(2L, "Пила", "Для дрели не подходит", true, 1L, null));
+        assertEquals(List.of(1L, 2L), index.search("дрел", 0, 10));
+
+        index.index(new Item(1L, "Перфоратор", "Ударный", true, 1L, null));
+        assertEquals(List.of(2L), index.search("дрел", 0, 10));
+        assertEquals(List.of(1L), index.search("перфо", 0, 10));
+        assertEquals(List.of(), index.search("ударная", 0, 10));
+
+        index.index(new Item(2L, "Пила", "Для дрели не подходит", false, 1L, null));
+        assertEquals(List.of(), index.search("дрел", 0, 10));
+        assertEquals(List.of(), index.search("пи", 0, 10));
+        assertEquals(1, index.size());
+
+        index.remove(1L);
+        assertEquals(List.of(), index.search("перфо", 0, 10));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void cacheFollowsIndexChangesAndSharesEntriesAcrossCase() {
+        ItemSearchCache cache = new ItemSearchCache(index, new ItemSearchCacheProperties(), new SimpleMeterRegistry());
+        for (long id = 1; id <= 10; id++) {
+            index.index(new Item(id, "Дрель " + id, "Описание", true, 1L, null));
+        }
+
+        assertEquals(List.of(3L, 4L, 5L), cache.search("ДРЕЛЬ", 2, 3));
+        assertEquals(List.of(9L, 10L), cache.search("дрель", 8, 5));
+        assertEquals(List.of(), cache.search("Дрель", 20, 5));
+        assertEquals(1, cache.stats().missCount());
+
+        // Переименование и снятие с аренды убирают вещи из закэшированной выдачи
+        index.index(new Item(1L, "Пила", "Описание", true, 1L, null));
+        index.index(new Item(2L, "Дрель 2", "Описание", false, 1L, null));
+        assertEquals(List.of(3L, 4L), cache.search("дрель", 0, 2));
+        assertEquals(List.of(1L), cache.search("пила", 0, 10));
+        assertEquals(List.of(), cache.search("нет такого", 0, 10));
+        assertEquals(4, cache.stats().missCount());
+
+        // Новая подходящая вещь появляется в выдаче, не подходящая — нет и кэш не сбрасывает
+        index.index(new Item(11L, "Дрель 11", "Описание", true, 1L, null));
+        index.index(new Item(12L, "Лобзик", "Описание", true, 1L, null));
+        assertEquals(List.of(10L, 11L), cache.search("ДРЕЛЬ", 7, 10));
+        assertEquals(List.of(1L), cache.search("пила", 0, 10));
+        assertEquals(5, cache.stats().missCount());
+    }
+
+    private static String phrase(Random random) {
+        StringBuilder phrase = new StringBuilder();
+        int words = 1 + random.nextInt(4);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                phrase.append(' ');
+            }
+            phrase.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return phrase.toString();
+    }
+
+    // Прежняя реализация поиска: полный перебор доступных вещей с contains без учёта регистра
+    private static List<Long> containsIgnoreCase(List<Item> items, String text) {
+        return items.stream()
+                .filter(item -> item.getAvailable() &&
+                        (item.getName().toLowerCase().contains(text.toLowerCase()) ||
+                         item.getDescription().toLowerCase().contains(text.toLowerCase())))
+                .map(Item::getId)
+                .toList();
+    }
+}
@@ -0,0 +1,168 @@
+package ru.practicum.shareit.item;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.item.dto.CommentCreateDto;
+import ru.practicum.shareit.item.dto.CommentCursor;
+import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemWithBookingsDto;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.CommentRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemRepository;
+import ru.practicum.shareit.item.service.ItemSearchCache;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+// Статистика Hibernate общая на все сессии, поэтому перенос фаз и ретранслятор outbox в фоне не должны попадать в замеры
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "shareit.booking-phases.roll-interval=PT1H",
+        "shareit.outbox.poll-interval=PT1H",
+        "shareit.outbox.relay-on-commit=false"
+})
+class ItemServiceImplTests {
+
+    @Autowired
+    private ItemService itemService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ItemSearchCache searchCache;
+
+    @Test
+    void getItemsByOwnerRunsSameNumberOfQueriesForAnyItemCount() {
+        User booker = createUser();
+        User smallOwner = createOwnerWithItems(1, booker);
+        User largeOwner = createOwnerWithItems(25, booker);
+
+        long smallCount = countStatements(() -> assertEquals(1, itemService.getItemsByOwner(smallOwner.getId()).size()));
+        long largeCount = countStatements(() -> {
+            List<ItemWithBookingsDto> items = itemService.getItemsByOwner(largeOwner.getId());
+            assertEquals(25, items.size());
+            items.forEach(item -> {
+                assertNotNull(item.getLastBooking());
+                assertNotNull(item.getNextBooking());
+                assertEquals(1, item.getComments().size());
+            });
+        });
+
+        assertEquals(smallCount, largeCount);
+    }
+
+    @Test
+    void searchCacheReloadsOnlyQueriesWhoseResultsChanged() {
+        Long ownerId = createUser().getId();
+        String drill = UUID.randomUUID().toString();
+        String saw = UUID.randomUUID().toString();
+        ItemDto first = itemService.createItem(new ItemDto(null, "Дрель " + drill, "Описание", true, null), ownerId);
+        ItemDto second = itemService.createItem(new ItemDto(null, "Пила " + saw, "Описание", true, null), ownerId);
+
+        assertEquals(List.of(first.getId()), itemService.searchItemIds(drill.toUpperCase(), 0, null));
+        assertEquals(List.of(second.getId()), itemService.searchItemIds(saw, 0, null));
+        long misses = searchCache.stats().missCount();
+
+        // Правка описания не меняет состав выдачи ни по одному из запросов, и оба остаются в кэше
+        itemService.updateItem(second.getId(), new ItemDto(null, null, "Новое описание", null, null), ownerId);
+        assertEquals(List.of(first.getId()), itemService.searchItemIds(drill, 0, 10));
+        assertEquals(List.of(second.getId()), itemService.searchItemIds(saw, 0, 10));
+        assertEquals(misses, searchCache.stats().missCount());
+
+        itemService.updateItem(first.getId(), new ItemDto(null, "Дрель", null, null, null), ownerId);
+        ItemDto third = itemService.createItem(new ItemDto(null, "Шуруповёрт", "Как " + drill, true, null), ownerId);
+        assertEquals(List.of(third.getId()), itemService.searchItemIds(drill, 0, null));
+        assertEquals(List.of(second.getId()), itemService.searchItemIds(saw, 0, null));
+        assertEquals(misses + 1, searchCache.stats().missCount());
+
+        itemService.updateItem(second.getId(), new ItemDto(null, null, null, false, null), ownerId);
+        assertEquals(List.of(), itemService.searchItemIds(saw, 0, null));
+        assertEquals(misses + 2, searchCache.stats().missCount());
+
+        // Поиск не берёт соединение из пула
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long connects = statistics.getConnectCount();
+        assertEquals(List.of(third.getId()), itemService.searchItemIds(drill, 0, null));
+        assertEquals(connects, statistics.getConnectCount());
+    }
+
+    @Test
+    void itemShowsCommentPreviewAndCountWhileFeedPagesByCursor() {
+        User booker = createUser();
+        User owner = createUser();
+        Item item = itemRepository.save(new Item(null, "Вещь", "Описание", true, owner.getId(), null));
+        LocalDateTime now = LocalDateTime.now();
+        bookingRepository.save(new Booking(null, now.minusDays(3), now.minusDays(2), item, booker, BookingStatus.APPROVED));
+        int total = ItemWithBookingsDto.COMMENTS_PREVIEW * 2 + 5;
+        for (int i = 0; i < total; i++) {
+            itemService.addComment(item.getId(), new CommentCreateDto("Отзыв " + i), booker.getId());
+        }
+
+        ItemWithBookingsDto shown = itemService.getItemById(item.getId(), booker.getId());
+        assertEquals(total, shown.getCommentCount());
+        assertEquals(ItemWithBookingsDto.COMMENTS_PREVIEW, shown.getComments().size());
+        assertEquals("Отзыв " + (total - 1), shown.getComments().get(0).getText());
+
+        List<CommentDto> feed = new ArrayList<>();
+        String cursor = null;
+        List<CommentDto> page;
+        do {
+            page = itemService.getComments(item.getId(), cursor, ItemWithBookingsDto.COMMENTS_PREVIEW);
+            feed.addAll(page);
+            cursor = page.isEmpty() ? null : CommentCursor.after(page.get(page.size() - 1)).encode();
+        } while (page.size() == ItemWithBookingsDto.COMMENTS_PREVIEW);
+        assertEquals(total, feed.size());
+        for (int i = 0; i < total; i++) {
+            assertEquals("Отзыв " + (total - 1 - i), feed.get(i).getText());
+        }
+        assertEquals(shown.getComments(), feed.subList(0, ItemWithBookingsDto.COMMENTS_PREVIEW));
+    }
+
+    private long countStatements(Runnable action) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private User createOwnerWithItems(int count, User booker) {
+        User owner = createUser();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < count; i++) {
+            Item item = itemRepository.save(new Item(null, "Вещь " + i, "Описание " + i, true, owner.getId(), null));
+            bookingRepository.save(new Booking(null, now.minusDays(3), now.minusDays(2), item, booker, BookingStatus.APPROVED));
+            bookingRepository.save(new Booking(null, now.plusDays(2), now.plusDays(3), item, booker, BookingStatus.APPROVED));
+            commentRepository.save(new Comment(null, "Отзыв " + i, item, booker, now.minusDays(1)));
+        }
+        return owner;
+    }
+
+    private User createUser() {
+        String name = UUID.randomUUID().toString();
+        return userRepository.save(new User(null, name, name + "@mail.ru"));
+    }
+}
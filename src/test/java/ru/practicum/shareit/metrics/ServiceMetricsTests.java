@@ -0,0 +1,97 @@
+package ru.practicum.shareit.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.booking.dto.BookingCreateDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class ServiceMetricsTests {
+
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void hotPathIsInstrumentedAndScraped() throws Exception {
+        User owner = createUser();
+        User booker = createUser();
+        Item item = itemRepository.save(new Item(null, "Вещь", "Описание", false, owner.getId(), null));
+
+        mockMvc.perform(get("/bookings").header(USER_HEADER, booker.getId()).param("state", "PAST"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/bookings").header(USER_HEADER, booker.getId()).param("state", "UNKNOWN"))
+                .andExpect(status().isBadRequest());
+        BookingCreateDto unavailable = new BookingCreateDto(item.getId(),
+                LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(2));
+        mockMvc.perform(post("/bookings").header(USER_HEADER, booker.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(unavailable)))
+                .andExpect(status().isBadRequest());
+
+        Timer past = meterRegistry.find(ServiceTimingInterceptor.TIMER)
+                .tags("service", "BookingService", "method", "getUserBookings", "state", "PAST", "outcome", "success")
+                .timer();
+        assertNotNull(past);
+        assertTrue(past.count() >= 1);
+        assertTrue(past.takeSnapshot().histogramCounts().length > 0, "Нет гистограммы у таймера сервиса");
+        assertNotNull(meterRegistry.find(ServiceTimingInterceptor.TIMER)
+                .tags("method", "getUserBookings", "state", "INVALID", "outcome", "IllegalArgumentException")
+                .timer());
+
+        DistributionSummary statements = meterRegistry.find(SqlStatementsFilter.SUMMARY)
+                .tags("method", "GET", "uri", "/bookings")
+                .summary();
+        assertNotNull(statements);
+        assertTrue(statements.totalAmount() > 0, "Не посчитаны SQL-операторы запроса");
+
+        assertEquals(1.0, meterRegistry.get("shareit.bookings.rejected").tag("reason", "bad_request")
+                .counter().count(), 0.0);
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("shareit_service_seconds_bucket{")))
+                .andExpect(content().string(containsString("shareit_http_sql_statements_count{")))
+                .andExpect(content().string(containsString("cache_gets_total{")));
+    }
+
+    private User createUser() {
+        String name = UUID.randomUUID().toString();
+        return userRepository.save(new User(null, name, name + "@mail.ru"));
+    }
+}
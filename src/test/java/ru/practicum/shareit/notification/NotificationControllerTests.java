@@ -0,0 +1,153 @@
+package ru.practicum.shareit.notification;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.booking.dto.BookingCreateDto;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemRepository;
+import ru.practicum.shareit.outbox.OutboxRelay;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+// Короткая история, чтобы проверить событие reset после вытеснения. Своя база: события доставляет ретранслятор
+// outbox, и ретрансляторы других контекстов в кэше не должны забирать их себе
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:notification-tests",
+        "shareit.booking-phases.roll-interval=PT1H",
+        "shareit.notifications.history-size=3"
+})
+@AutoConfigureMockMvc
+class NotificationControllerTests {
+
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private OutboxRelay relay;
+
+    @Test
+    void bookingEventsReachOwnerAndBookerAndResumeFromLastEventId() throws Exception {
+        User owner = createUser();
+        User booker = createUser();
+        Item item = itemRepository.save(new Item(null, "Дрель", "Описание", true, owner.getId(), null));
+        MockHttpServletResponse ownerStream = subscribe(owner, null);
+        MockHttpServletResponse bookerStream = subscribe(booker, null);
+
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        Long bookingId = bookingService.createBooking(
+                new BookingCreateDto(item.getId(), start, start.plusHours(1)), booker.getId()).getId();
+        Event created = awaitEvents(ownerStream, 1).getFirst();
+        assertEquals("booking", created.name());
+        assertEquals(bookingId, created.data().get("bookingId").asLong());
+        assertEquals("WAITING", created.data().get("status").asText());
+
+        bookingService.approveBooking(bookingId, true, owner.getId());
+        Event decided = awaitEvents(bookerStream, 1).getFirst();
+        assertEquals(bookingId, decided.data().get("bookingId").asLong());
+        assertEquals("APPROVED", decided.data().get("status").asText());
+        assertEquals(1, events(ownerStream).size(), "Владелец не получает уведомление о собственном решении");
+
+        // Переподключение с Last-Event-ID досылает только пропущенное
+        List<Long> missed = new ArrayList<>();
+        for (int i = 1; i <= 2; i++) {
+            LocalDateTime next = start.plusDays(i);
+            missed.add(bookingService.createBooking(
+                    new BookingCreateDto(item.getId(), next, next.plusHours(1)), booker.getId()).getId());
+        }
+        relay.relay();
+        List<Event> resumed = awaitEvents(subscribe(owner, created.id()), 2);
+        assertEquals(missed, resumed.stream().map(event -> event.data().get("bookingId").asLong()).toList());
+
+        // Событие вытеснено из истории: восстановить пропуски нельзя, клиенту приходит reset
+        for (int i = 3; i <= 4; i++) {
+            LocalDateTime next = start.plusDays(i);
+            bookingService.createBooking(new BookingCreateDto(item.getId(), next, next.plusHours(1)), booker.getId());
+        }
+        relay.relay();
+        List<Event> reset = awaitEvents(subscribe(owner, created.id()), 1);
+        assertEquals(NotificationBus.RESET_EVENT, reset.getFirst().name());
+        assertTrue(Long.parseLong(reset.getFirst().id()) > Long.parseLong(created.id()));
+    }
+
+    private MockHttpServletResponse subscribe(User user, String lastEventId) throws Exception {
+        var builder = get("/notifications").header(USER_HEADER, user.getId());
+        if (lastEventId != null) {
+            builder.header("Last-Event-ID", lastEventId);
+        }
+        return mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+    }
+
+    private List<Event> awaitEvents(MockHttpServletResponse stream, int count) throws Exception {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        List<Event> events = events(stream);
+        while (events.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            events = events(stream);
+        }
+        assertEquals(count, events.size(), "Получены события: " + events);
+        return events;
+    }
+
+    private List<Event> events(MockHttpServletResponse stream) throws Exception {
+        List<Event> events = new ArrayList<>();
+        // Событие пишется несколькими частями: незавершённый хвост без пустой строки пропускается
+        String content = stream.getContentAsString(StandardCharsets.UTF_8);
+        content = content.substring(0, content.lastIndexOf("\n\n") + 1);
+        for (String block : content.split("\n\n")) {
+            String id = null;
+            String name = null;
+            JsonNode data = null;
+            for (String line : block.split("\n")) {
+                if (line.startsWith("id:")) {
+                    id = line.substring(3);
+                } else if (line.startsWith("event:")) {
+                    name = line.substring(6);
+                } else if (line.startsWith("data:") && line.length() > 5) {
+                    data = objectMapper.readTree(line.substring(5));
+                }
+            }
+            if (id != null) {
+                events.add(new Event(id, name, data));
+            }
+        }
+        return events;
+    }
+
+    private User createUser() {
+        String name = UUID.randomUUID().toString();
+        return userRepository.save(new User(null, name, name + "@mail.ru"));
+    }
+
+    private record Event(String id, String name, JsonNode data) {
+    }
+}
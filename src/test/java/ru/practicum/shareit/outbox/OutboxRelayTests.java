@@ -0,0 +1,190 @@
+package ru.practicum.shareit.outbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.BookingCreateDto;
+import ru.practicum.shareit.booking.service.BookingEvents;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Ретранслятор вызывается тестом напрямую, фоновые запуски отключены. Своя база: ретрансляторы контекстов
+// других тестов, оставшихся в кэше, разбирали бы ту же таблицу outbox
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox-tests",
+        "shareit.booking-phases.roll-interval=PT1H",
+        "shareit.outbox.poll-interval=PT1H",
+        "shareit.outbox.relay-on-commit=false",
+        "shareit.outbox.batch-size=" + OutboxRelayTests.BATCH_SIZE,
+        "shareit.outbox.max-attempts=3"
+})
+class OutboxRelayTests {
+
+    static final int BATCH_SIZE = 5;
+
+    @Autowired
+    private OutboxRelay relay;
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private RecordingConsumer consumer;
+
+    private User owner;
+    private User booker;
+
+    @BeforeEach
+    void setUp() {
+        owner = createUser();
+        booker = createUser();
+        relay.relay();
+        consumer.reset();
+    }
+
+    @Test
+    void eventsAreWrittenWithChangeAndRelayedInOrderPerAggregate() {
+        // Откат транзакции откатывает и событие
+        long before = outboxEventRepository.count();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            createBooking(LocalDateTime.now().plusDays(1));
+            status.setRollbackOnly();
+        });
+        assertEquals(before, outboxEventRepository.count());
+
+        Long failing = createBooking(LocalDateTime.now().plusDays(2));
+        Long other = createBooking(LocalDateTime.now().plusDays(3));
+        bookingService.approveBooking(failing, true, owner.getId());
+        consumer.failFor(failing);
+
+        // Сбой подписчика задерживает только свой агрегат, и его события не обгоняют друг друга
+        relay.relay();
+        assertEquals(List.of(other + " " + BookingEvents.CREATED), consumer.received(Set.of(failing, other)));
+        assertEquals(1, outboxEventRepository.findUnpublishedAfter(0L, Pageable.unpaged())
+                .stream()
+                .filter(event -> event.getAggregateId().equals(failing))
+                .findFirst().orElseThrow().getAttempts());
+
+        consumer.failFor();
+        relay.relay();
+        assertEquals(List.of(other + " " + BookingEvents.CREATED, failing + " " + BookingEvents.CREATED,
+                failing + " " + BookingEvents.DECIDED), consumer.received(Set.of(failing, other)));
+
+        // Переигрывание доставляет уже доставленное ещё раз, в исходном порядке
+        consumer.reset();
+        assertTrue(relay.replay(LocalDateTime.now().minusMinutes(1)) >= 3);
+        relay.relay();
+        assertEquals(List.of(failing + " " + BookingEvents.CREATED, other + " " + BookingEvents.CREATED,
+                failing + " " + BookingEvents.DECIDED), consumer.received(Set.of(failing, other)));
+    }
+
+    @Test
+    void failingHeadOfQueueDoesNotStarveLaterEventsAndIsParked() {
+        LocalDateTime start = LocalDateTime.now().plusDays(10);
+        List<Long> failing = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE + 2; i++) {
+            failing.add(createBooking(start.plusDays(i)));
+        }
+        Long healthy = createBooking(start.minusDays(1));
+        consumer.failFor(failing.toArray(Long[]::new));
+
+        // Больше пакета недоставляемых событий в начале очереди: проход идёт дальше и доставляет следующее
+        relay.relay();
+        assertEquals(List.of(healthy + " " + BookingEvents.CREATED), consumer.received(Set.of(healthy)));
+
+        // После max-attempts попыток события откладываются и больше не выбираются
+        relay.relay();
+        relay.relay();
+        List<OutboxEvent> parked = outboxEventRepository.findAll().stream()
+                .filter(event -> failing.contains(event.getAggregateId()))
+                .toList();
+        assertEquals(failing.size(), parked.size());
+        assertTrue(parked.stream().allMatch(event -> event.getParkedAt() != null && event.getAttempts() == 3));
+        assertTrue(outboxEventRepository.findUnpublishedAfter(0L, Pageable.unpaged()).stream()
+                .noneMatch(event -> failing.contains(event.getAggregateId())));
+
+        // Переигрывание после исправления подписчика возвращает отложенные события в очередь
+        consumer.failFor();
+        relay.replay(LocalDateTime.now().minusMinutes(1));
+        relay.relay();
+        assertEquals(failing.size(), consumer.received(Set.copyOf(failing)).size());
+    }
+
+    private Long createBooking(LocalDateTime start) {
+        Item item = itemRepository.save(new Item(null, "Вещь", "Описание", true, owner.getId(), null));
+        return bookingService.createBooking(new BookingCreateDto(item.getId(), start, start.plusHours(1)),
+                booker.getId()).getId();
+    }
+
+    private User createUser() {
+        String name = UUID.randomUUID().toString();
+        return userRepository.save(new User(null, name, name + "@mail.ru"));
+    }
+
+    static class RecordingConsumer implements OutboxConsumer {
+
+        private final List<OutboxEvent> events = new CopyOnWriteArrayList<>();
+        private volatile Set<Long> failFor = Set.of();
+
+        @Override
+        public String aggregateType() {
+            return BookingEvents.AGGREGATE;
+        }
+
+        @Override
+        public void accept(OutboxEvent event) {
+            if (failFor.contains(event.getAggregateId())) {
+                throw new IllegalStateException("Сбой подписчика");
+            }
+            events.add(event);
+        }
+
+        void failFor(Long... aggregateIds) {
+            failFor = Set.of(aggregateIds);
+        }
+
+        void reset() {
+            events.clear();
+        }
+
+        List<String> received(Set<Long> aggregateIds) {
+            return events.stream()
+                    .filter(event -> aggregateIds.contains(event.getAggregateId()))
+                    .map(event -> event.getAggregateId() + " " + event.getEventType())
+                    .toList();
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        RecordingConsumer recordingConsumer() {
+            return new RecordingConsumer();
+        }
+    }
+}
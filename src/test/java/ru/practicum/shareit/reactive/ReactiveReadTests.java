@@ -0,0 +1,112 @@
+package ru.practicum.shareit.reactive;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingState;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.CommentRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemRepository;
+import ru.practicum.shareit.item.service.ItemBookingPointersService;
+import ru.practicum.shareit.item.service.ItemServiceImpl;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Реактивные чтения должны отвечать так же, как блокирующие.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ReactiveReadTests {
+
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private ItemServiceImpl itemService;
+    @Autowired
+    private ItemBookingPointersService pointersService;
+
+    @Test
+    void reactiveReadsMatchBlockingReads() throws Exception {
+        User owner = createUser();
+        User booker = createUser();
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        List<Booking> bookings = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Item item = itemRepository.save(new Item(null, "Реактивная дрель " + i, "Описание", true,
+                    owner.getId(), null));
+            for (int j = 0; j < 4; j++) {
+                LocalDateTime start = now.plusDays(j * 3L - 5);
+                bookings.add(new Booking(null, start, start.plusDays(2), item, booker, BookingStatus.values()[j % 3]));
+            }
+            commentRepository.save(new Comment(null, "Отзыв " + i, item, booker, now.minusHours(i)));
+        }
+        bookingRepository.saveAll(bookings);
+        itemService.rebuildSearchIndex();
+        pointersService.rebuildAll();
+        Long itemId = bookings.get(0).getItem().getId();
+
+        for (BookingState state : BookingState.values()) {
+            assertSameResponse("/bookings?size=20&state=" + state, booker.getId());
+            assertSameResponse("/bookings/owner?from=1&size=5&state=" + state, owner.getId());
+        }
+        assertSameResponse("/items", owner.getId());
+        assertSameResponse("/items/" + itemId, owner.getId());
+        assertSameResponse("/items/" + itemId, booker.getId());
+        assertSameResponse("/items/search?text=" + "дрель", booker.getId());
+
+        mockMvc.perform(get("/reactive/bookings").header(USER_HEADER, booker.getId()).param("state", "UNKNOWN"))
+                .andExpect(status().isBadRequest());
+        MvcResult missing = mockMvc.perform(get("/reactive/items/{id}", Long.MAX_VALUE).header(USER_HEADER, owner.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(missing)).andExpect(status().isNotFound());
+    }
+
+    private void assertSameResponse(String path, Long userId) throws Exception {
+        String blocking = mockMvc.perform(get(path).header(USER_HEADER, userId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        MvcResult started = mockMvc.perform(get("/reactive" + path).header(USER_HEADER, userId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().json(blocking, true));
+    }
+
+    private User createUser() {
+        String name = UUID.randomUUID().toString();
+        return userRepository.save(new User(null, name, name + "@mail.ru"));
+    }
+}
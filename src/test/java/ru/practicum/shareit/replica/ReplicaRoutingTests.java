@@ -0,0 +1,210 @@
+package ru.practicum.shareit.replica;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.dto.BookingCreateDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Две базы H2 в памяти: основная и реплика. Репликации между ними нет, тест копирует строки сам,
+// и расхождение данных показывает, откуда было прочитано
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replica-primary",
+        "shareit.replicas.enabled=true",
+        "shareit.replicas.urls[0]=" + ReplicaRoutingTests.REPLICA_URL,
+        "shareit.replicas.connection-timeout=PT0.5S",
+        "shareit.replicas.read-your-writes-window=PT1H",
+        "shareit.booking-phases.roll-interval=PT1H"
+})
+@AutoConfigureMockMvc
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ReplicaRoutingTests {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica-secondary;DB_CLOSE_DELAY=-1";
+
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeAll
+    static void createReplicaSchema() {
+        Flyway.configure()
+                .dataSource(REPLICA_URL, "sa", "password")
+                .locations("classpath:db/migration", "classpath:ru/practicum/shareit/db/migration")
+                .load()
+                .migrate();
+    }
+
+    @Test
+    @Order(1)
+    void entityCacheIsNotFilledFromLaggingReplica() throws Exception {
+        User owner = createUser();
+        User reader = createUser();
+        Item item = itemRepository.save(new Item(null, "Дрель", "Описание", true, owner.getId(), null));
+        replicate("users", owner.getId());
+        replicate("users", reader.getId());
+        replicate("items", item.getId());
+
+        // Реплика не получила переименование, а кэш после записи пуст
+        mockMvc.perform(patch("/items/{id}", item.getId()).header(USER_HEADER, owner.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Перфоратор\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/items/{id}", item.getId()).header(USER_HEADER, reader.getId()))
+                .andExpect(jsonPath("$.name").value("Дрель"));
+
+        // Прочитанная с реплики строка не попала в кэш: владелец видит свою правку, и ETag у него новый
+        String etag = mockMvc.perform(get("/items/{id}", item.getId()).header(USER_HEADER, owner.getId()))
+                .andExpect(jsonPath("$.name").value("Перфоратор"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        long version = itemRepository.findById(item.getId()).orElseThrow().getVersion();
+        assertEquals(item.getVersion() + 1, version);
+        assertTrue(etag != null && etag.startsWith("\"item-" + item.getId() + "-" + version + "-"), etag);
+    }
+
+    // Отключает реплику, поэтому выполняется последним
+    @Test
+    @Order(2)
+    void readsGoToReplicaExceptAfterOwnWritesAndWhenReplicaIsDown() throws Exception {
+        User owner = createUser();
+        User booker = createUser();
+        Item item = itemRepository.save(new Item(null, "Дрель", "Описание", true, owner.getId(), null));
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        String created = mockMvc.perform(post("/bookings").header(USER_HEADER, booker.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new BookingCreateDto(item.getId(), start, start.plusHours(1)))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Long bookingId = objectMapper.readTree(created).get("id").asLong();
+
+        // Реплика отстаёт: бронирование там в другом статусе
+        replicate("users", owner.getId());
+        replicate("users", booker.getId());
+        replicate("items", item.getId());
+        replicate("bookings", bookingId);
+        new JdbcTemplate(replicaDataSource()).update("update bookings set status = 'REJECTED' where id = ?", bookingId);
+
+        // Владелец ничего не менял и читает с реплики, арендатор только что создал бронирование и видит его
+        mockMvc.perform(get("/bookings/{id}", bookingId).header(USER_HEADER, owner.getId()))
+                .andExpect(jsonPath("$.status").value("REJECTED"));
+        mockMvc.perform(get("/bookings/{id}", bookingId).header(USER_HEADER, booker.getId()))
+                .andExpect(jsonPath("$.status").value("WAITING"));
+
+        // Реплика недоступна: чтение переключается на основную базу
+        double failovers = routed("failover");
+        shutDownReplica();
+        // Соединение, которым пользовались последние 500 мс, Hikari выдаёт без проверки; запрос на нём получил бы 503
+        Thread.sleep(600);
+        mockMvc.perform(get("/bookings/{id}", bookingId).header(USER_HEADER, owner.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("WAITING"));
+        assertEquals(failovers + 1, routed("failover"));
+        // Пока реплика помечена недоступной, к ней не обращаются
+        mockMvc.perform(get("/bookings/{id}", bookingId).header(USER_HEADER, owner.getId()))
+                .andExpect(jsonPath("$.status").value("WAITING"));
+        assertEquals(failovers + 2, routed("failover"));
+    }
+
+    // Реплики включены, но список пуст: чтение идёт на основную базу как обычное, а не как переключение
+    @Test
+    void readWithoutReplicasIsNotCountedAsFailover() throws Exception {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ReplicaRouting routing = new ReplicaRouting(new ReplicaProperties());
+        DataSource router = new ReplicaRoutingDataSource(
+                new DriverManagerDataSource("jdbc:h2:mem:replica-empty", "sa", "password"), List.of(), routing,
+                Duration.ofSeconds(30), registry);
+        // Первое обращение к прокси берёт соединение, чтобы узнать настройки по умолчанию
+        router.getConnection().close();
+        double primary = registry.counter(ReplicaRoutingDataSource.ROUTED, "target", "primary").count();
+        routing.allowReplica(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try (Connection connection = router.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("select 1");
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+            routing.allowReplica(false);
+        }
+        assertEquals(primary + 1, registry.counter(ReplicaRoutingDataSource.ROUTED, "target", "primary").count());
+        assertEquals(0, registry.counter(ReplicaRoutingDataSource.ROUTED, "target", "failover").count());
+    }
+
+    private void replicate(String table, Long id) {
+        Map<String, Object> row = new JdbcTemplate(dataSource).queryForMap("select * from " + table + " where id = ?", id);
+        String columns = String.join(", ", row.keySet());
+        String placeholders = String.join(", ", row.keySet().stream().map(column -> "?").toList());
+        new JdbcTemplate(replicaDataSource()).update("insert into " + table + " (" + columns + ") values (" +
+                placeholders + ")", row.values().toArray());
+    }
+
+    // Новые подключения отклоняются, открытые сессии пула обрываются
+    private static void shutDownReplica() throws Exception {
+        try (Connection connection = DriverManager.getConnection(REPLICA_URL, "sa", "password");
+             Statement statement = connection.createStatement()) {
+            statement.execute("alter user sa set password 'closed'");
+            statement.execute("select abort_session(session_id) from information_schema.sessions " +
+                    "where session_id <> session_id()");
+        }
+    }
+
+    private static DataSource replicaDataSource() {
+        return new DriverManagerDataSource(REPLICA_URL, "sa", "password");
+    }
+
+    private double routed(String target) {
+        return meterRegistry.counter(ReplicaRoutingDataSource.ROUTED, "target", target).count();
+    }
+
+    private User createUser() {
+        String name = UUID.randomUUID().toString();
+        return userRepository.save(new User(null, name, name + "@mail.ru"));
+    }
+}
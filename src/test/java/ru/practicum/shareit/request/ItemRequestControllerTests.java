@@ -0,0 +1,134 @@
+package ru.practicum.shareit.request;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.request.dto.ItemRequestCreateDto;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Перенос фаз и ретранслятор outbox в фоне отключены, чтобы их запросы не попадали в общую статистику Hibernate
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "shareit.booking-phases.roll-interval=PT1H",
+        "shareit.outbox.poll-interval=PT1H",
+        "shareit.outbox.relay-on-commit=false"
+})
+@AutoConfigureMockMvc
+class ItemRequestControllerTests {
+
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void requestsComeWithAnswersAndOthersFeedPagesByCursor() throws Exception {
+        User requestor = createUser();
+        User other = createUser();
+        User owner = createUser();
+        List<Long> requestIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            requestIds.add(createRequest(requestor, "Нужна вещь " + i));
+        }
+        Long ownRequestOfOther = createRequest(other, "Своя просьба");
+        createItem(owner, "Ответ 1", requestIds.get(3));
+        createItem(owner, "Ответ 2", requestIds.get(3));
+        createItem(owner, "Ответ 3", requestIds.get(4));
+
+        mockMvc.perform(get("/requests").header(USER_HEADER, requestor.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id").value(contains(requestIds.reversed().stream()
+                        .map(Long::intValue).toArray())))
+                .andExpect(jsonPath("$[0].items[*].name").value(contains("Ответ 3")))
+                .andExpect(jsonPath("$[1].items[*].name").value(contains("Ответ 1", "Ответ 2")))
+                .andExpect(jsonPath("$[2].items").isEmpty());
+
+        // Лента чужих запросов: курсор до конца, свой запрос в неё не попадает, ответы на страницу — одним запросом
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<Long> feed = new ArrayList<>();
+        String cursor = "";
+        do {
+            statistics.clear();
+            MockHttpServletResponse response = mockMvc.perform(get("/requests/all").header(USER_HEADER, other.getId())
+                            .param("cursor", cursor).param("size", "2"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse();
+            assertTrue(statistics.getPrepareStatementCount() <= 2,
+                    "Страница ленты выполнила " + statistics.getPrepareStatementCount() + " запросов");
+            for (JsonNode request : objectMapper.readTree(response.getContentAsString(StandardCharsets.UTF_8))) {
+                feed.add(request.get("id").asLong());
+            }
+            cursor = response.getHeader("X-Next-Cursor");
+        } while (cursor != null);
+        assertTrue(feed.containsAll(requestIds));
+        assertFalse(feed.contains(ownRequestOfOther));
+        assertEquals(requestIds.reversed(), feed.stream().filter(requestIds::contains).toList());
+
+        mockMvc.perform(get("/requests/{id}", requestIds.get(3)).header(USER_HEADER, other.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.description").value("Нужна вещь 3"))
+                .andExpect(jsonPath("$.items[*].ownerId").value(contains(owner.getId().intValue(),
+                        owner.getId().intValue())));
+        mockMvc.perform(get("/requests/{id}", Long.MAX_VALUE).header(USER_HEADER, other.getId()))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/items").header(USER_HEADER, owner.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ItemDto(null, "Вещь", "Описание", true,
+                                Long.MAX_VALUE))))
+                .andExpect(status().isNotFound());
+    }
+
+    private Long createRequest(User requestor, String description) throws Exception {
+        String body = mockMvc.perform(post("/requests").header(USER_HEADER, requestor.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ItemRequestCreateDto(description))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").isEmpty())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        return objectMapper.readTree(body).get("id").asLong();
+    }
+
+    private void createItem(User owner, String name, Long requestId) throws Exception {
+        mockMvc.perform(post("/items").header(USER_HEADER, owner.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ItemDto(null, name, "Описание", true, requestId))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requestId").value(requestId));
+    }
+
+    private User createUser() {
+        String name = UUID.randomUUID().toString();
+        return userRepository.save(new User(null, name, name + "@mail.ru"));
+    }
+}